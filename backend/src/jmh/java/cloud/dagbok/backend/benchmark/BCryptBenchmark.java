@@ -0,0 +1,31 @@
+package cloud.dagbok.backend.benchmark;
+
+import cloud.dagbok.backend.utils.BCryptUtil;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/** Password check on login, at the cost factor {@link BCryptUtil#hashPassword} uses. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BCryptBenchmark {
+  private String hash;
+
+  @Setup
+  public void setUp() {
+    hash = BCryptUtil.hashPassword("correct horse battery staple");
+  }
+
+  @Benchmark
+  public boolean checkPassword() {
+    return BCryptUtil.checkPassword("correct horse battery staple", hash);
+  }
+
+  @Benchmark
+  public boolean checkWrongPassword() {
+    return BCryptUtil.checkPassword("wrong horse battery staple", hash);
+  }
+}
@@ -0,0 +1,74 @@
+package cloud.dagbok.backend.benchmark;
+
+import cloud.dagbok.backend.entity.Role;
+import cloud.dagbok.backend.utils.JwtUtil;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Token issue and the verification paths used by login and every authenticated call. The plain
+ * variants verify one token over and over, so they measure cache hits. The {@code Uncached}
+ * variants rotate through more tokens than a cache of size 0 could hold, so every call pays for the
+ * signature check and parsing, as a token's first request does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtUtilBenchmark {
+  private static final int COLD_TOKENS = 1024;
+
+  private JwtUtil jwtUtil;
+  private JwtUtil uncachedJwtUtil;
+  private UUID userId;
+  private String token;
+  private String[] coldTokens;
+  private int nextColdToken;
+
+  @Setup
+  public void setUp() {
+    jwtUtil = JwtVerificationBenchmark.newJwtUtil(10_000);
+    uncachedJwtUtil = JwtVerificationBenchmark.newJwtUtil(0);
+    userId = UUID.randomUUID();
+    token = jwtUtil.generateToken(userId, "benchmark_user", Role.USER, 1000 * 60 * 60L);
+    coldTokens = new String[COLD_TOKENS];
+    for (int i = 0; i < COLD_TOKENS; i++) {
+      coldTokens[i] =
+          uncachedJwtUtil.generateToken(userId, "benchmark_user", Role.USER, 1000 * 60 * 60L);
+    }
+  }
+
+  @Benchmark
+  public String generateToken() {
+    return jwtUtil.generateToken(userId, "benchmark_user", Role.USER, 1000 * 60 * 60L);
+  }
+
+  @Benchmark
+  public boolean validateJwtToken() {
+    return jwtUtil.validateJwtToken(token);
+  }
+
+  @Benchmark
+  public String usernameFromToken() {
+    return jwtUtil.verify(token).username();
+  }
+
+  @Benchmark
+  public boolean validateJwtTokenUncached() {
+    return uncachedJwtUtil.validateJwtToken(nextColdToken());
+  }
+
+  @Benchmark
+  public String usernameFromTokenUncached() {
+    return uncachedJwtUtil.verify(nextColdToken()).username();
+  }
+
+  private String nextColdToken() {
+    String next = coldTokens[nextColdToken];
+    nextColdToken = (nextColdToken + 1) % COLD_TOKENS;
+    return next;
+  }
+}
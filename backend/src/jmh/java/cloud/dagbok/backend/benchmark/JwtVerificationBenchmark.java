@@ -0,0 +1,58 @@
+package cloud.dagbok.backend.benchmark;
+
+import cloud.dagbok.backend.entity.Role;
+import cloud.dagbok.backend.utils.JwtUtil;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import javax.crypto.SecretKey;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Compares the old filter path (validate, then parse again for the subject, each with a freshly
+ * built parser) with {@link JwtUtil#verify}, which parses once and caches the result per token.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtVerificationBenchmark {
+  static final String SECRET = "ifgPtcMrQGIDxmDvzQuD1aUtVy7x92nsSQ42ZEJPbqQ=";
+
+  private SecretKey key;
+  private JwtUtil jwtUtil;
+  private String token;
+
+  @Setup
+  public void setUp() {
+    key = Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET));
+    jwtUtil = newJwtUtil(10_000);
+    token =
+        jwtUtil.generateToken(UUID.randomUUID(), "benchmark_user", Role.USER, 1000 * 60 * 60L);
+  }
+
+  static JwtUtil newJwtUtil(long tokenCacheMaxSize) {
+    JwtUtil jwtUtil = new JwtUtil(new SimpleMeterRegistry());
+    ReflectionTestUtils.setField(jwtUtil, "jwtSecret", SECRET);
+    ReflectionTestUtils.setField(jwtUtil, "tokenCacheMaxSize", tokenCacheMaxSize);
+    jwtUtil.init();
+    return jwtUtil;
+  }
+
+  @Benchmark
+  public String legacyValidateThenParse() {
+    Jwts.parser().verifyWith(key).build().parseSignedClaims(token);
+    return Jwts.parser().verifyWith(key).build().parseSignedClaims(token).getPayload().getSubject();
+  }
+
+  @Benchmark
+  public JwtUtil.TokenClaims verifyCached() {
+    return jwtUtil.verify(token);
+  }
+}
@@ -0,0 +1,101 @@
+package cloud.dagbok.backend.benchmark;
+
+import cloud.dagbok.backend.dto.note.NoteItem;
+import cloud.dagbok.backend.dto.note.NoteResponse;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.openjdk.jmh.annotations.*;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+import tools.jackson.dataformat.cbor.CBORMapper;
+import tools.jackson.dataformat.smile.SmileMapper;
+
+/**
+ * Encoding a full page of notes ({@code GET /api/notes/user}) as JSON, CBOR and Smile, with and
+ * without the gzip the server applies, and decoding it again as a client would. The payload size
+ * of each combination is printed when its trial starts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PayloadEncodingBenchmark {
+  private static final int PAGE = 50;
+  private static final String[] WORDS = {
+    "idag", "var", "en", "bra", "dag", "möte", "med", "teamet", "om", "releasen", "och", "sedan",
+    "lunch", "**viktigt**", "- [ ] ringa", "tandläkaren", "`deploy`", "## Anteckningar", "imorgon",
+    "projektet", "behöver", "mer", "tid", "för", "tester", "\n"
+  };
+
+  @Param({"json", "cbor", "smile"})
+  public String format;
+
+  @Param({"false", "true"})
+  public boolean gzip;
+
+  private ObjectMapper mapper;
+  private NoteResponse page;
+  private byte[] wire;
+
+  @Setup
+  public void setUp() throws IOException {
+    mapper =
+        switch (format) {
+          case "cbor" -> new CBORMapper();
+          case "smile" -> new SmileMapper();
+          default -> new JsonMapper();
+        };
+
+    Random random = new Random(42);
+    List<NoteItem> notes =
+        IntStream.range(0, PAGE)
+            .mapToObj(i -> new NoteItem(UUID.randomUUID(), markdown(random, 2000)))
+            .toList();
+    page = new NoteResponse(notes, "MjAyNi0wMy0wNFQxMDowMDowMHw" + UUID.randomUUID());
+
+    wire = encode();
+    System.out.printf("%n%s, gzip=%s: %d bytes%n", format, gzip, wire.length);
+  }
+
+  private static String markdown(Random random, int length) {
+    StringBuilder text = new StringBuilder(length + 32);
+    while (text.length() < length) {
+      text.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+    }
+    return text.toString();
+  }
+
+  private static byte[] gzip(byte[] bytes) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 2);
+    try (GZIPOutputStream zip = new GZIPOutputStream(out)) {
+      zip.write(bytes);
+    }
+    return out.toByteArray();
+  }
+
+  @Benchmark
+  public byte[] encode() throws IOException {
+    byte[] bytes = mapper.writeValueAsBytes(page);
+    return gzip ? gzip(bytes) : bytes;
+  }
+
+  @Benchmark
+  public NoteResponse decode() throws IOException {
+    if (!gzip) {
+      return mapper.readValue(wire, NoteResponse.class);
+    }
+    try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(wire))) {
+      return mapper.readValue(in, NoteResponse.class);
+    }
+  }
+}
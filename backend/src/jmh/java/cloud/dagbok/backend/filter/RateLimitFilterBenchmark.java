@@ -0,0 +1,81 @@
+package cloud.dagbok.backend.filter;
+
+import cloud.dagbok.backend.dto.user.Principal;
+import cloud.dagbok.backend.entity.Role;
+import io.github.bucket4j.Bucket;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Key building and bucket lookup done for every request, against the default in-memory store.
+ * Buckets are looked up but not consumed, so the numbers are not skewed by exhausted limits.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RateLimitFilterBenchmark {
+  @Param({"/api/notes/user", "/user/login", "/user/me", "/health"})
+  public String path;
+
+  @Param({"true", "false"})
+  public boolean authenticated;
+
+  private RateLimitFilter filter;
+  private MockHttpServletRequest request;
+
+  @Setup
+  public void setUp() {
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    filter = new RateLimitFilter(new LocalBucketStore(meterRegistry), meterRegistry);
+    for (String field :
+        List.of(
+            "defaultCapacity",
+            "demoCapacity",
+            "userCapacity",
+            "notesCapacity",
+            "defaultDuration",
+            "demoRefillDuration",
+            "userRefillDuration",
+            "notesRefillDuration")) {
+      ReflectionTestUtils.setField(filter, field, 100);
+    }
+
+    request = new MockHttpServletRequest("GET", path);
+    request.addHeader("X-Forwarded-For", "203.0.113.7, 10.0.0.1");
+
+    if (authenticated) {
+      Principal principal = new Principal(UUID.randomUUID(), "benchmark_user", Role.USER);
+      SecurityContextHolder.getContext()
+          .setAuthentication(
+              new UsernamePasswordAuthenticationToken(principal, null, List.of()));
+    } else {
+      SecurityContextHolder.clearContext();
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    SecurityContextHolder.clearContext();
+  }
+
+  @Benchmark
+  public String resolveKey() {
+    return filter.resolveKey(request);
+  }
+
+  @Benchmark
+  public Bucket resolveBucket() {
+    return filter.resolveBucket(
+        filter.resolveKey(request), RateLimitFilter.bucketType(request.getRequestURI()));
+  }
+}
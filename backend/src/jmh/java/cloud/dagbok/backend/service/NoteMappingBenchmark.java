@@ -0,0 +1,68 @@
+package cloud.dagbok.backend.service;
+
+import cloud.dagbok.backend.dto.note.Note;
+import cloud.dagbok.backend.dto.note.NoteItem;
+import cloud.dagbok.backend.dto.note.NoteKeysetRow;
+import cloud.dagbok.backend.dto.note.NoteNew;
+import cloud.dagbok.backend.entity.NoteEntity;
+import cloud.dagbok.backend.entity.UserEntity;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import org.openjdk.jmh.annotations.*;
+
+/** The entity-to-DTO mappings in {@link NoteService}, over a page of full-length notes. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NoteMappingBenchmark {
+  private static final int PAGE = 50;
+
+  private List<NoteEntity> entities;
+  private List<NoteKeysetRow> rows;
+
+  @Setup
+  public void setUp() {
+    UserEntity user = new UserEntity();
+    user.setId(UUID.randomUUID());
+    String text = "Idag var en bra dag. ".repeat(230);
+
+    entities =
+        IntStream.range(0, PAGE)
+            .mapToObj(
+                i ->
+                    new NoteEntity(
+                        UUID.randomUUID(),
+                        user,
+                        text,
+                        LocalDate.now(),
+                        LocalDateTime.now().minusMinutes(i),
+                        null))
+            .toList();
+    rows =
+        entities.stream()
+            .map(e -> new NoteKeysetRow(e.getId(), e.getText(), e.getCreatedAt()))
+            .toList();
+  }
+
+  @Benchmark
+  public List<NoteNew> toNoteNew() {
+    return entities.stream().map(NoteService::toNoteNew).toList();
+  }
+
+  @Benchmark
+  public List<Note> toNote() {
+    return entities.stream().map(NoteService::toNote).toList();
+  }
+
+  @Benchmark
+  public List<NoteItem> toNoteItem() {
+    return rows.stream().map(NoteService::toNoteItem).toList();
+  }
+}
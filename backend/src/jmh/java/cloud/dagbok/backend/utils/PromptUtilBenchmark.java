@@ -0,0 +1,67 @@
+package cloud.dagbok.backend.utils;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Request serialization and response parsing around each OpenRouter call, on payloads shaped like
+ * what {@code openai/gpt-4o-mini} returns for a typical diary entry.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PromptUtilBenchmark {
+  private static final String MODEL = "openai/gpt-4o-mini";
+  private static final String PROMPT =
+      "You are a friendly diary assistant. Rewrite the user's notes as a short, warm journal"
+          + " entry in Swedish. Keep every fact, do not invent events, and use Markdown for"
+          + " headings and lists.";
+
+  private String message;
+  private byte[] response;
+
+  @Setup
+  public void setUp() {
+    message =
+        "Vaknade tidigt, sprang 5 km runt sjön. Jobbade med backend hela förmiddagen, lunch med"
+            + " Anna. Möte om releasen på eftermiddagen, sedan middag och en film. "
+                .repeat(8);
+    String content =
+        "## En produktiv dag\\n\\nDagen började tidigt med en löprunda runt sjön. "
+            .repeat(30);
+    response =
+        """
+        {"id":"gen-1736942400-AbCdEfGhIjKlMnOp","provider":"OpenAI","model":"%s",
+         "object":"chat.completion","created":1736942400,
+         "choices":[{"logprobs":null,"finish_reason":"stop","native_finish_reason":"stop",
+           "index":0,"message":{"role":"assistant","content":"%s","refusal":null,
+           "reasoning":null}}],
+         "system_fingerprint":"fp_0aa8d3e20b",
+         "usage":{"prompt_tokens":412,"completion_tokens":958,"total_tokens":1370,
+           "prompt_tokens_details":{"cached_tokens":0},
+           "completion_tokens_details":{"reasoning_tokens":0}}}
+        """
+            .formatted(MODEL, content)
+            .getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Benchmark
+  public String buildChatBody() throws Exception {
+    return PromptUtil.buildChatBody(MODEL, PROMPT, message, false);
+  }
+
+  @Benchmark
+  public PromptUtil.Estimate estimate() {
+    return PromptUtil.estimate(MODEL, PROMPT, message);
+  }
+
+  @Benchmark
+  public PromptUtil.ChatResult parseResponse() throws Exception {
+    return PromptUtil.parseResponse(new ByteArrayInputStream(response), MODEL);
+  }
+}
@@ -0,0 +1,18 @@
+package cloud.dagbok.backend.config;
+
+import cloud.dagbok.backend.utils.SqlStatementCounter;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.hibernate.autoconfigure.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class HibernateConfig {
+
+  /** Lets {@code SqlStatementFilter} count the statements each request issues. */
+  @Bean
+  public HibernatePropertiesCustomizer sqlStatementCounter() {
+    return properties ->
+        properties.put(AvailableSettings.STATEMENT_INSPECTOR, new SqlStatementCounter());
+  }
+}
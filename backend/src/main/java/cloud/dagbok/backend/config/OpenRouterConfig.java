@@ -0,0 +1,26 @@
+package cloud.dagbok.backend.config;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class OpenRouterConfig {
+
+  /**
+   * One shared client for all OpenRouter calls. HTTP/2 multiplexes concurrent requests over a
+   * single connection, which the client keeps open and reuses between calls.
+   */
+  @Bean(destroyMethod = "close")
+  public HttpClient openRouterHttpClient(
+      @Value("${openrouter.connect-timeout-seconds:10}") long connectTimeoutSeconds) {
+    return HttpClient.newBuilder()
+        .version(HttpClient.Version.HTTP_2)
+        .connectTimeout(Duration.ofSeconds(connectTimeoutSeconds))
+        .executor(Executors.newVirtualThreadPerTaskExecutor())
+        .build();
+  }
+}
@@ -0,0 +1,60 @@
+package cloud.dagbok.backend.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+
+/**
+ * Times every query method of every Spring Data repository as {@code repository.query}, tagged with
+ * the repository interface, the method and whether it threw. Methods returning a {@code Stream}
+ * are timed until the stream is returned, not until it is consumed.
+ */
+@Configuration
+public class RepositoryMetricsConfig {
+
+  @Bean
+  static BeanPostProcessor repositoryQueryTimers(ObjectProvider<MeterRegistry> meterRegistry) {
+    return new BeanPostProcessor() {
+      @Override
+      public Object postProcessBeforeInitialization(Object bean, String beanName) {
+        if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> factoryBean) {
+          factoryBean.addRepositoryFactoryCustomizer(
+              factory ->
+                  factory.addRepositoryProxyPostProcessor(
+                      (proxyFactory, repository) ->
+                          proxyFactory.addAdvice(
+                              queryTimer(
+                                  meterRegistry.getObject(),
+                                  repository.getRepositoryInterface().getSimpleName()))));
+        }
+        return bean;
+      }
+    };
+  }
+
+  private static MethodInterceptor queryTimer(MeterRegistry meterRegistry, String repository) {
+    return invocation -> {
+      Timer.Sample sample = Timer.start(meterRegistry);
+      String outcome = "error";
+      try {
+        Object result = invocation.proceed();
+        outcome = "success";
+        return result;
+      } finally {
+        sample.stop(
+            Timer.builder("repository.query")
+                .description("Time spent in repository query methods")
+                .tag("repository", repository)
+                .tag("query", invocation.getMethod().getName())
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+      }
+    };
+  }
+}
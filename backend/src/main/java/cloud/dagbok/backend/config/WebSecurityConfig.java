@@ -52,7 +52,10 @@ public class WebSecurityConfig implements WebMvcConfigurer {
                         "/user/login",
                         "/user/register",
                         "/user/demo",
+                        "/health",
+                        // Only served on the unpublished management port
                         "/actuator/health",
+                        "/actuator/prometheus",
                         "/api/health",
                         "/api/status",
                         "/api/public/**",
@@ -83,7 +86,9 @@ public class WebSecurityConfig implements WebMvcConfigurer {
 
     configuration.setAllowedMethods(
         Arrays.asList("GET", "POST", "PUT", "DELETE", "PATCH", "OPTIONS"));
-    configuration.setAllowedHeaders(Arrays.asList("Authorization", "Content-Type", "Accept"));
+    configuration.setAllowedHeaders(
+        Arrays.asList("Authorization", "Content-Type", "Accept", "Idempotency-Key"));
+    configuration.setExposedHeaders(List.of("Idempotent-Replayed"));
     configuration.setAllowCredentials(true);
     configuration.setMaxAge(3600L);
 
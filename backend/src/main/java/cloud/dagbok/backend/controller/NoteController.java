@@ -2,43 +2,249 @@ package cloud.dagbok.backend.controller;
 
 import cloud.dagbok.backend.dto.note.*;
 import cloud.dagbok.backend.dto.user.Principal;
+import cloud.dagbok.backend.exceptionHandler.MonthlyCostLimitExceededException;
+import cloud.dagbok.backend.filter.SqlBudget;
+import cloud.dagbok.backend.service.DataVersionService;
+import cloud.dagbok.backend.service.IdempotencyService;
+import cloud.dagbok.backend.service.NoteExportService;
+import cloud.dagbok.backend.service.NoteImportService;
+import cloud.dagbok.backend.service.NoteJobService;
 import cloud.dagbok.backend.service.NoteService;
+import cloud.dagbok.backend.utils.ConditionalResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
 import java.time.LocalDate;
-import java.time.LocalDateTime;
 import java.util.Objects;
 import java.util.UUID;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 @RestController
 @RequestMapping("/api")
 public class NoteController {
   private final NoteService noteService;
+  private final NoteJobService noteJobService;
+  private final IdempotencyService idempotencyService;
+  private final NoteImportService noteImportService;
+  private final NoteExportService noteExportService;
+  private final DataVersionService dataVersionService;
+  private static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+  private static final String IDEMPOTENT_REPLAYED = "Idempotent-Replayed";
   private static final Logger log = LoggerFactory.getLogger(NoteController.class);
 
-  public NoteController(NoteService noteService) {
+  public NoteController(
+      NoteService noteService,
+      NoteJobService noteJobService,
+      IdempotencyService idempotencyService,
+      NoteImportService noteImportService,
+      NoteExportService noteExportService,
+      DataVersionService dataVersionService) {
     this.noteService = noteService;
+    this.noteJobService = noteJobService;
+    this.idempotencyService = idempotencyService;
+    this.noteImportService = noteImportService;
+    this.noteExportService = noteExportService;
+    this.dataVersionService = dataVersionService;
   }
 
+  /**
+   * Creates a note. With an {@code Idempotency-Key} header, repeating the request returns the
+   * note created the first time (marked with {@code Idempotent-Replayed: true}) instead of
+   * generating and storing it again.
+   */
   @PostMapping("/notes")
+  @SqlBudget(12)
   public ResponseEntity<NoteNew> createNote(
-      @Valid @RequestBody NoteCreateRequest request, Authentication authentication) {
+      @Valid @RequestBody NoteCreateRequest request,
+      @RequestHeader(name = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+      Authentication authentication) {
 
     Principal principal = (Principal) authentication.getPrincipal();
     Objects.requireNonNull(principal, "Principal cannot be null");
 
     log.info("Received note request: {}", request);
-    var createdNote = noteService.createNewUserNote(request, principal.userId());
-    log.info("Created note: {}", createdNote);
-    return ResponseEntity.status(201).body(createdNote);
+    if (idempotencyKey == null) {
+      var createdNote = noteService.createNewUserNote(request, principal.userId());
+      log.info("Created note: {}", createdNote);
+      return ResponseEntity.status(201).body(createdNote);
+    }
+
+    var outcome =
+        idempotencyService.execute(
+            principal.userId(),
+            idempotencyKey,
+            request,
+            () -> noteService.createNewUserNote(request, principal.userId()));
+    log.info("Created note: {} (replayed: {})", outcome.value(), outcome.replayed());
+    return ResponseEntity.status(201)
+        .header(IDEMPOTENT_REPLAYED, String.valueOf(outcome.replayed()))
+        .body(outcome.value());
+  }
+
+  @PostMapping(value = "/notes", params = "async=true")
+  public ResponseEntity<NoteJob> createNoteAsync(
+      @Valid @RequestBody NoteCreateRequest request,
+      @RequestHeader(name = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+      Authentication authentication) {
+
+    Principal principal = (Principal) authentication.getPrincipal();
+    Objects.requireNonNull(principal, "Principal cannot be null");
+
+    log.info("Received async note request: {}", request);
+    NoteJob job;
+    boolean replayed = false;
+    if (idempotencyKey == null) {
+      job = noteJobService.submit(request, principal.userId());
+    } else {
+      var outcome =
+          idempotencyService.execute(
+              principal.userId(),
+              idempotencyKey,
+              request,
+              () -> noteJobService.submit(request, principal.userId()));
+      job = outcome.value();
+      replayed = outcome.replayed();
+    }
+    log.info("Queued note job: {} (replayed: {})", job.id(), replayed);
+    return ResponseEntity.accepted()
+        .location(URI.create("/api/notes/jobs/" + job.id()))
+        .header(IDEMPOTENT_REPLAYED, String.valueOf(replayed))
+        .body(job);
+  }
+
+  /**
+   * Streams the generated note as server-sent events: an {@code estimate} event with the model,
+   * estimated prompt tokens, {@code max_tokens} and worst-case cost of the call, then {@code token}
+   * events carrying text deltas, followed by one {@code note} event with the persisted note, or an
+   * {@code error} event.
+   */
+  @PostMapping(value = "/notes/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public SseEmitter streamNote(
+      @Valid @RequestBody NoteCreateRequest request, Authentication authentication) {
+
+    Principal principal = (Principal) authentication.getPrincipal();
+    Objects.requireNonNull(principal, "Principal cannot be null");
+
+    log.info("Received streaming note request: {}", request);
+    SseEmitter emitter = new SseEmitter(Duration.ofSeconds(90).toMillis());
+    noteJobService.stream(
+        request,
+        principal.userId(),
+        estimate -> send(emitter, "estimate", estimate),
+        delta -> send(emitter, "token", new NoteChunk(delta)),
+        note -> {
+          send(emitter, "note", note);
+          emitter.complete();
+        },
+        error -> {
+          String message =
+              error instanceof MonthlyCostLimitExceededException
+                  ? error.getMessage()
+                  : "Note generation failed";
+          send(emitter, "error", new NoteChunk(message));
+          emitter.complete();
+        });
+    return emitter;
+  }
+
+  private void send(SseEmitter emitter, String event, Object data) {
+    try {
+      emitter.send(SseEmitter.event().name(event).data(data, MediaType.APPLICATION_JSON));
+    } catch (IOException | IllegalStateException e) {
+      log.debug("Client went away while streaming note: {}", e.getMessage());
+    }
+  }
+
+  @GetMapping("/notes/jobs/{jobId}")
+  public ResponseEntity<NoteJob> getNoteJob(
+      @PathVariable UUID jobId,
+      @RequestParam(name = "wait", defaultValue = "0") int waitSeconds,
+      Authentication authentication) {
+    if (waitSeconds < 0 || waitSeconds > 60) {
+      throw new IllegalArgumentException("Wait must be between 0 and 60 seconds");
+    }
+    Principal principal = (Principal) authentication.getPrincipal();
+    Objects.requireNonNull(principal, "Principal cannot be null");
+
+    NoteJob job = noteJobService.getJob(jobId, principal.userId(), Duration.ofSeconds(waitSeconds));
+    return ResponseEntity.ok(job);
+  }
+
+  /**
+   * Imports notes from NDJSON (one {@code {"text": ..., "date": "yyyy-MM-dd"}} per line) or a JSON
+   * array of the same objects. The body is streamed, not buffered.
+   */
+  @PostMapping(
+      value = "/notes/import",
+      consumes = {"application/x-ndjson", MediaType.APPLICATION_JSON_VALUE})
+  public ResponseEntity<NoteImportResponse> importNotes(
+      HttpServletRequest request, Authentication authentication) throws IOException {
+    Principal principal = (Principal) authentication.getPrincipal();
+    Objects.requireNonNull(principal, "Principal cannot be null");
+
+    log.info("User: {} started a note import", principal.userId());
+    NoteImportResponse result =
+        noteImportService.importNotes(principal.userId(), request.getInputStream());
+    return ResponseEntity.ok(result);
+  }
+
+  /**
+   * Streams all of the user's notes as NDJSON ({@code format=ndjson}, the import format) or as a
+   * zip of one Markdown file per day ({@code format=markdown}).
+   */
+  @GetMapping("/notes/export")
+  public void exportNotes(
+      @RequestParam(defaultValue = "ndjson") String format,
+      HttpServletResponse response,
+      Authentication authentication)
+      throws IOException {
+    Principal principal = (Principal) authentication.getPrincipal();
+    Objects.requireNonNull(principal, "Principal cannot be null");
+
+    String filename;
+    String contentType;
+    switch (format) {
+      case "ndjson" -> {
+        filename = "dagbok-notes.ndjson";
+        contentType = "application/x-ndjson";
+      }
+      case "markdown" -> {
+        filename = "dagbok-notes.zip";
+        contentType = "application/zip";
+      }
+      default -> throw new IllegalArgumentException("Format must be ndjson or markdown");
+    }
+
+    try (NoteExportService.Slot slot = noteExportService.acquireSlot()) {
+      log.info("User: {} started a {} export", principal.userId(), format);
+      response.setContentType(contentType);
+      response.setHeader(
+          HttpHeaders.CONTENT_DISPOSITION,
+          ContentDisposition.attachment().filename(filename).build().toString());
+
+      int exported =
+          format.equals("ndjson")
+              ? noteExportService.exportNdjson(principal.userId(), response.getOutputStream())
+              : noteExportService.exportMarkdownZip(principal.userId(), response.getOutputStream());
+      log.info("Exported {} notes for user: {}", exported, principal.userId());
+    }
   }
 
   @PutMapping("/notes")
+  @SqlBudget(6)
   public ResponseEntity<Note> updateNote(
       @Valid @RequestBody NoteUpdateRequest request, Authentication authentication) {
 
@@ -51,6 +257,7 @@ public class NoteController {
   }
 
   @DeleteMapping("/notes/{noteId}")
+  @SqlBudget(6)
   public ResponseEntity<Note> deleteNote(@PathVariable UUID noteId, Authentication authentication) {
 
     Principal apiPrincipal = (Principal) authentication.getPrincipal();
@@ -66,21 +273,57 @@ public class NoteController {
   }
 
   @GetMapping("/notes/user")
+  @SqlBudget(3)
   public ResponseEntity<NoteResponse> getNotesByDate(
       @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
-      Authentication authentication) {
+      @RequestParam(required = false) String cursor,
+      @RequestParam(defaultValue = "50") int limit,
+      Authentication authentication,
+      WebRequest webRequest) {
     Principal principal = (Principal) authentication.getPrincipal();
     Objects.requireNonNull(principal, "Principal cannot be null");
 
-    LocalDateTime dateTime = date.atStartOfDay();
+    if (limit < 1 || limit > 100) {
+      throw new IllegalArgumentException("Limit must be between 1 and 100");
+    }
+
+    return ConditionalResponse.ifNoneMatch(
+        webRequest,
+        dataVersionService.eTag(principal.userId()),
+        () -> {
+          log.info("User: {} requested notes for date: {}", principal.userId(), date);
+          return noteService.getNoteByDate(principal.userId(), date.atStartOfDay(), cursor, limit);
+        });
+  }
+
+  /** Notes of every day from {@code from} to {@code to} (inclusive), grouped by date. */
+  @GetMapping("/notes/range")
+  @SqlBudget(3)
+  public ResponseEntity<NoteRangeResponse> getNotesByDateRange(
+      @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+      @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+      Authentication authentication,
+      WebRequest webRequest) {
+    Principal principal = (Principal) authentication.getPrincipal();
+    Objects.requireNonNull(principal, "Principal cannot be null");
 
-    log.info("User: {} requested notes for date: {}", principal.userId(), date);
-    return ResponseEntity.ok(noteService.getNoteByDate(principal.userId(), dateTime));
+    return ConditionalResponse.ifNoneMatch(
+        webRequest,
+        dataVersionService.eTag(principal.userId()),
+        () -> {
+          log.info("User: {} requested notes from: {} to: {}", principal.userId(), from, to);
+          return noteService.getNotesByDateRange(principal.userId(), from, to);
+        });
   }
 
   @GetMapping("/notes/user/search")
-  public ResponseEntity<NoteResponse> findNoteByText(
-      @RequestParam(name = "q") String query, Authentication authentication) {
+  @SqlBudget(6)
+  public ResponseEntity<NoteSearchResponse> findNoteByText(
+      @RequestParam(name = "q") String query,
+      @RequestParam(required = false) String cursor,
+      @RequestParam(defaultValue = "20") int limit,
+      Authentication authentication,
+      WebRequest webRequest) {
     Principal principal = (Principal) authentication.getPrincipal();
     Objects.requireNonNull(principal, "Principal cannot be null");
 
@@ -93,13 +336,26 @@ public class NoteController {
       throw new IllegalArgumentException("Search query exceeds maximum length of 500 characters");
     }
 
-    log.info("User: {} requested notes with text: {}", principal.userId(), sanitizedQuery);
-    return ResponseEntity.ok(noteService.findNotesByText(principal.userId(), sanitizedQuery));
+    if (limit < 1 || limit > 100) {
+      throw new IllegalArgumentException("Limit must be between 1 and 100");
+    }
+
+    return ConditionalResponse.ifNoneMatch(
+        webRequest,
+        dataVersionService.eTag(principal.userId()),
+        () -> {
+          log.info("User: {} requested notes with text: {}", principal.userId(), sanitizedQuery);
+          return noteService.findNotesByText(principal.userId(), sanitizedQuery, cursor, limit);
+        });
   }
 
   @GetMapping("/notes/counts/{year}/{month}")
+  @SqlBudget(3)
   public ResponseEntity<NoteItemWithDate> getNoteCountsByMonth(
-      @PathVariable int year, @PathVariable int month, Authentication authentication) {
+      @PathVariable int year,
+      @PathVariable int month,
+      Authentication authentication,
+      WebRequest webRequest) {
     if (month < 1 || month > 12) {
       throw new IllegalArgumentException("Month must be between 1 and 12");
     }
@@ -109,13 +365,16 @@ public class NoteController {
     Principal principal = (Principal) authentication.getPrincipal();
     Objects.requireNonNull(principal, "Principal cannot be null");
 
-    log.info(
-        "User: {} requested note counts for year: {} and month: {}",
-        principal.userId(),
-        year,
-        month);
-
-    NoteItemWithDate noteCounts = noteService.getNotesByMonth(principal.userId(), year, month);
-    return ResponseEntity.ok(noteCounts);
+    return ConditionalResponse.ifNoneMatch(
+        webRequest,
+        dataVersionService.eTag(principal.userId()),
+        () -> {
+          log.info(
+              "User: {} requested note counts for year: {} and month: {}",
+              principal.userId(),
+              year,
+              month);
+          return noteService.getNotesByMonth(principal.userId(), year, month);
+        });
   }
 }
@@ -2,8 +2,12 @@ package cloud.dagbok.backend.controller;
 
 import cloud.dagbok.backend.dto.token.Token;
 import cloud.dagbok.backend.dto.user.*;
+import cloud.dagbok.backend.filter.SqlBudget;
+import cloud.dagbok.backend.service.DataVersionService;
 import cloud.dagbok.backend.service.UserService;
+import cloud.dagbok.backend.utils.ConditionalResponse;
 import jakarta.validation.Valid;
+import java.time.YearMonth;
 import java.util.Objects;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -13,22 +17,29 @@ import org.springframework.http.ResponseCookie;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 @RestController
 @RequestMapping("/user")
 public class UserController {
 
   private final UserService userService;
+  private final DataVersionService dataVersionService;
   private static final Logger log = LoggerFactory.getLogger(UserController.class);
 
   @Value("${cookie.secure:true}")
   private boolean cookieSecure;
 
-  public UserController(UserService userService) {
+  @Value("${demo.ttl-minutes:5}")
+  private int demoTtlMinutes;
+
+  public UserController(UserService userService, DataVersionService dataVersionService) {
     this.userService = userService;
+    this.dataVersionService = dataVersionService;
   }
 
   @PostMapping("/register")
+  @SqlBudget(2)
   public ResponseEntity<Void> register(@Valid @RequestBody User user) {
     log.info("User register attempt");
     userService.registerUser(user);
@@ -37,6 +48,7 @@ public class UserController {
   }
 
   @PostMapping("/login")
+  @SqlBudget(4)
   public ResponseEntity<Void> login(@Valid @RequestBody UserCheck user) {
     log.info("User login attempt");
     Token tokens = userService.loginUser(user.username(), user.password());
@@ -48,33 +60,46 @@ public class UserController {
   }
 
   /**
-   * Creates a demo user account with a 5-minute session.
+   * Creates a demo user account whose session lasts {@code demo.ttl-minutes}; the account is
+   * deleted when it ends.
    * Note: This endpoint should be protected with rate limiting to prevent abuse.
    * Consider implementing IP-based rate limiting or CAPTCHA protection.
    */
   @PostMapping("/demo")
+  @SqlBudget(2)
   public ResponseEntity<Void> demo() {
     log.info("Demo user login attempt");
     Token token = userService.demoLogin();
 
-    ResponseCookie cookie = createCookie("accessToken", token.token(), 60 * 5);
+    ResponseCookie cookie = createCookie("accessToken", token.token(), 60 * demoTtlMinutes);
 
     log.info("Demo user session created successfully");
 
     return ResponseEntity.ok().header(HttpHeaders.SET_COOKIE, cookie.toString()).build();
   }
 
+  /**
+   * The profile carries a weak ETag of the user's data version and the month, since the monthly
+   * cost it reports starts over each month.
+   */
   @GetMapping("/me")
-  public ResponseEntity<UserProfile> getUserInfo(Authentication authentication) {
+  @SqlBudget(5)
+  public ResponseEntity<UserProfile> getUserInfo(
+      Authentication authentication, WebRequest webRequest) {
     Principal apiPrincipal = (Principal) authentication.getPrincipal();
     Objects.requireNonNull(apiPrincipal, "Principal cannot be null");
-    log.info("Fetching user info");
 
-    UserProfile profile = userService.getUserProfile(apiPrincipal.username());
-    return ResponseEntity.ok(profile);
+    return ConditionalResponse.ifNoneMatch(
+        webRequest,
+        dataVersionService.eTag(apiPrincipal.userId(), YearMonth.now().toString()),
+        () -> {
+          log.info("Fetching user info");
+          return userService.getUserProfile(apiPrincipal.username());
+        });
   }
 
   @PutMapping("/prompt")
+  @SqlBudget(5)
   public ResponseEntity<UserProfile> updateUserPrompt(
       Authentication authentication, @Valid @RequestBody UpdatePromptRequest prompt) {
     Principal apiPrincipal = (Principal) authentication.getPrincipal();
@@ -97,6 +122,7 @@ public class UserController {
   }
 
   @PatchMapping("/model")
+  @SqlBudget(5)
   public ResponseEntity<UserProfile> updateUserModel(
       Authentication authentication, @Valid @RequestBody UpdateModelRequest request) {
     Principal apiPrincipal = (Principal) authentication.getPrincipal();
@@ -109,8 +135,15 @@ public class UserController {
   }
 
   @PostMapping("/logout")
+  @SqlBudget(4)
   public ResponseEntity<Void> logout(
-      @CookieValue(name = "accessToken", required = false) String token) {
+      @CookieValue(name = "accessToken", required = false) String token,
+      @RequestHeader(name = HttpHeaders.AUTHORIZATION, required = false) String authorization) {
+    if ((token == null || token.isEmpty())
+        && authorization != null
+        && authorization.startsWith("Bearer ")) {
+      token = authorization.substring(7);
+    }
     if (token != null && !token.isEmpty()) {
       userService.invalidateToken(token);
     }
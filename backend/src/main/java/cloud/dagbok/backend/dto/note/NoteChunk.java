@@ -0,0 +1,3 @@
+package cloud.dagbok.backend.dto.note;
+
+public record NoteChunk(String text) {}
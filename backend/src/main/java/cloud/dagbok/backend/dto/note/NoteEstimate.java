@@ -0,0 +1,3 @@
+package cloud.dagbok.backend.dto.note;
+
+public record NoteEstimate(String model, int promptTokens, int maxTokens, double costUSD) {}
@@ -0,0 +1,7 @@
+package cloud.dagbok.backend.dto.note;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+public record NoteExportItem(UUID id, LocalDate date, LocalDateTime createdAt, String text) {}
@@ -0,0 +1,5 @@
+package cloud.dagbok.backend.dto.note;
+
+import java.time.LocalDate;
+
+public record NoteImportItem(String text, LocalDate date) {}
@@ -0,0 +1,3 @@
+package cloud.dagbok.backend.dto.note;
+
+public record NoteImportResponse(int imported, int skipped) {}
@@ -0,0 +1,5 @@
+package cloud.dagbok.backend.dto.note;
+
+import java.util.UUID;
+
+public record NoteJob(UUID id, NoteJobStatus status, NoteNew note, String error) {}
@@ -0,0 +1,8 @@
+package cloud.dagbok.backend.dto.note;
+
+public enum NoteJobStatus {
+  PENDING,
+  RUNNING,
+  COMPLETED,
+  FAILED
+}
@@ -0,0 +1,6 @@
+package cloud.dagbok.backend.dto.note;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+public record NoteKeysetRow(UUID id, String text, LocalDateTime createdAt) {}
@@ -0,0 +1,6 @@
+package cloud.dagbok.backend.dto.note;
+
+import java.util.List;
+
+/** Notes per day, in date order; days without notes are left out. */
+public record NoteRangeResponse(List<NotesOfDate> days, boolean truncated) {}
@@ -0,0 +1,6 @@
+package cloud.dagbok.backend.dto.note;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+public record NoteRangeRow(UUID id, LocalDate date, String text) {}
@@ -0,0 +1,9 @@
+package cloud.dagbok.backend.dto.note;
+
+import java.util.List;
+
+/**
+ * One page of ranked notes, and how many notes match from the start of the page on (including
+ * those on it).
+ */
+public record NoteRanking(List<NoteScore> notes, long remaining) {}
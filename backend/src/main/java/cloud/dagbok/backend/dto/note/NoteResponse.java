@@ -2,4 +2,4 @@ package cloud.dagbok.backend.dto.note;
 
 import java.util.List;
 
-public record NoteResponse(List<NoteItem> notes) {}
+public record NoteResponse(List<NoteItem> notes, String nextCursor) {}
@@ -0,0 +1,5 @@
+package cloud.dagbok.backend.dto.note;
+
+import java.util.UUID;
+
+public record NoteScore(UUID noteId, double score) {}
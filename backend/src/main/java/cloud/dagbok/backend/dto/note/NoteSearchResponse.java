@@ -0,0 +1,5 @@
+package cloud.dagbok.backend.dto.note;
+
+import java.util.List;
+
+public record NoteSearchResponse(List<NoteItem> notes, String nextCursor, long total) {}
@@ -0,0 +1,9 @@
+package cloud.dagbok.backend.dto.note;
+
+import java.util.List;
+
+/**
+ * What a search needs to weigh its terms: the user's number of live notes, and per query term the
+ * number of notes containing it.
+ */
+public record NoteSearchStats(long notes, List<Long> documentFrequencies) {}
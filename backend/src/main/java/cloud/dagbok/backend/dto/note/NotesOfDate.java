@@ -0,0 +1,6 @@
+package cloud.dagbok.backend.dto.note;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public record NotesOfDate(LocalDate date, List<NoteItem> notes) {}
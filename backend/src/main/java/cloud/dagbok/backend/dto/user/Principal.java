@@ -1,5 +1,6 @@
 package cloud.dagbok.backend.dto.user;
 
+import cloud.dagbok.backend.entity.Role;
 import java.util.UUID;
 
-public record Principal(UUID userId, String username) {}
+public record Principal(UUID userId, String username, Role role) {}
@@ -0,0 +1,72 @@
+package cloud.dagbok.backend.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * A user's AI spend for one calendar month ({@code period} is {@code yyyy-MM}). {@code
+ * reservedUsd} holds estimates for generations that are still in flight, so the budget check can
+ * account for them before the model is called. {@code reservedAt} is when the latest of them was
+ * made; once it is older than any call can take, whatever is still reserved was lost to a crash and
+ * is released by {@link cloud.dagbok.backend.service.CostLedgerService#releaseStale}.
+ */
+@Entity
+@Table(
+    name = "cost_ledger",
+    uniqueConstraints =
+        @UniqueConstraint(
+            name = "uk_cost_ledger_user_period",
+            columnNames = {"user_id", "period"}))
+public class CostLedgerEntity {
+  @Id
+  @GeneratedValue(strategy = GenerationType.UUID)
+  private UUID id;
+
+  @Column(name = "user_id", nullable = false)
+  private UUID userId;
+
+  @Column(nullable = false, length = 7)
+  private String period;
+
+  @Column(name = "spent_usd", nullable = false)
+  private double spentUsd;
+
+  @Column(name = "reserved_usd", nullable = false)
+  private double reservedUsd;
+
+  @Column(name = "reserved_at")
+  private LocalDateTime reservedAt;
+
+  public CostLedgerEntity() {}
+
+  public CostLedgerEntity(UUID userId, String period, double spentUsd) {
+    this.userId = userId;
+    this.period = period;
+    this.spentUsd = spentUsd;
+  }
+
+  public UUID getId() {
+    return id;
+  }
+
+  public UUID getUserId() {
+    return userId;
+  }
+
+  public String getPeriod() {
+    return period;
+  }
+
+  public double getSpentUsd() {
+    return spentUsd;
+  }
+
+  public double getReservedUsd() {
+    return reservedUsd;
+  }
+
+  public LocalDateTime getReservedAt() {
+    return reservedAt;
+  }
+}
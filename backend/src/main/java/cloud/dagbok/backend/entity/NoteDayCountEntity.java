@@ -0,0 +1,52 @@
+package cloud.dagbok.backend.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDate;
+import java.util.UUID;
+
+/** Materialised number of live notes a user has on a given day, kept in sync by NoteService. */
+@Entity
+@Table(
+    name = "note_day_counts",
+    uniqueConstraints =
+        @UniqueConstraint(
+            name = "uk_note_day_counts_user_date",
+            columnNames = {"user_id", "date"}))
+public class NoteDayCountEntity {
+  @Id
+  @GeneratedValue(strategy = GenerationType.UUID)
+  private UUID id;
+
+  @Column(name = "user_id", nullable = false)
+  private UUID userId;
+
+  @Column(nullable = false)
+  private LocalDate date;
+
+  @Column(name = "note_count", nullable = false)
+  private long count;
+
+  public NoteDayCountEntity() {}
+
+  public NoteDayCountEntity(UUID userId, LocalDate date, long count) {
+    this.userId = userId;
+    this.date = date;
+    this.count = count;
+  }
+
+  public UUID getId() {
+    return id;
+  }
+
+  public UUID getUserId() {
+    return userId;
+  }
+
+  public LocalDate getDate() {
+    return date;
+  }
+
+  public long getCount() {
+    return count;
+  }
+}
@@ -5,19 +5,25 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.UUID;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UuidGenerator;
 
 @Entity
-@Table(name = "notes")
+@Table(
+    name = "notes",
+    indexes =
+        @Index(name = "idx_notes_user_deleted_date", columnList = "user_id, deleted_at, date"))
 public class NoteEntity {
   @Id
-  @GeneratedValue(strategy = GenerationType.UUID)
+  @GeneratedValue
+  @UuidGenerator(style = UuidGenerator.Style.VERSION_7)
   private UUID id;
 
-  @ManyToOne
+  @ManyToOne(fetch = FetchType.LAZY)
   @JoinColumn(name = "user_id", nullable = false)
   private UserEntity user;
 
   @Column(length = 5000)
+  @Convert(converter = NoteTextConverter.class)
   private String text;
 
   @Column(nullable = false)
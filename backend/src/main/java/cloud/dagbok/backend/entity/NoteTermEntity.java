@@ -0,0 +1,64 @@
+package cloud.dagbok.backend.entity;
+
+import jakarta.persistence.*;
+import java.util.UUID;
+import org.hibernate.annotations.UuidGenerator;
+
+/**
+ * One row of the full-text search index: how often {@code term} occurs in a note. Rows reference
+ * the note and user by id only so search never has to join or load the notes themselves.
+ */
+@Entity
+@Table(
+    name = "note_terms",
+    indexes = {
+      @Index(name = "idx_note_terms_user_term", columnList = "user_id, term"),
+      @Index(name = "idx_note_terms_note", columnList = "note_id")
+    })
+public class NoteTermEntity {
+  @Id
+  @GeneratedValue
+  @UuidGenerator(style = UuidGenerator.Style.VERSION_7)
+  private UUID id;
+
+  @Column(name = "user_id", nullable = false)
+  private UUID userId;
+
+  @Column(name = "note_id", nullable = false)
+  private UUID noteId;
+
+  @Column(nullable = false, length = 64)
+  private String term;
+
+  @Column(nullable = false)
+  private int frequency;
+
+  public NoteTermEntity() {}
+
+  public NoteTermEntity(UUID userId, UUID noteId, String term, int frequency) {
+    this.userId = userId;
+    this.noteId = noteId;
+    this.term = term;
+    this.frequency = frequency;
+  }
+
+  public UUID getId() {
+    return id;
+  }
+
+  public UUID getUserId() {
+    return userId;
+  }
+
+  public UUID getNoteId() {
+    return noteId;
+  }
+
+  public String getTerm() {
+    return term;
+  }
+
+  public int getFrequency() {
+    return frequency;
+  }
+}
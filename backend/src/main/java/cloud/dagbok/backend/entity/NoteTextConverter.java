@@ -0,0 +1,125 @@
+package cloud.dagbok.backend.entity;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Storage format of {@code notes.text}. With {@code notes.compression.enabled}, texts of at least
+ * {@code notes.compression.min-length} characters are stored as {@value #COMPRESSED} followed by
+ * the Base64 of their raw-deflated UTF-8, when that comes out shorter. The deflater is primed with
+ * the signature block every generated note ends with, so it costs a few bytes instead of ~80.
+ *
+ * <p>Reading understands every format regardless of the setting: text starting with {@value
+ * #COMPRESSED} is inflated, text starting with {@value #PLAIN} has the marker stripped, and
+ * anything else is plain text from before this format existed. A plain text that itself starts with
+ * a marker character is written with {@value #PLAIN} in front so it cannot be mistaken for one.
+ *
+ * <p>The {@code note_terms} search index is built from the plain text before it is stored, so
+ * search is unaffected.
+ */
+@Component
+@Converter
+public class NoteTextConverter implements AttributeConverter<String, String> {
+  public static final char PLAIN = '\u0001';
+  public static final char COMPRESSED = '\u0002';
+
+  /** Never change: inflating a stored text needs the exact dictionary it was deflated with. */
+  private static final byte[] DICTIONARY =
+      "\n\n# \n\n## \n\n- **\n\n***\n\n**2026-01-01**\n\n**demo_\n\nGenerated with ❤️ by dagbok.cloud\n"
+          .getBytes(StandardCharsets.UTF_8);
+
+  private final boolean enabled;
+  private final int minLength;
+
+  public NoteTextConverter(
+      @Value("${notes.compression.enabled:false}") boolean enabled,
+      @Value("${notes.compression.min-length:256}") int minLength) {
+    this.enabled = enabled;
+    this.minLength = minLength;
+  }
+
+  public boolean enabled() {
+    return enabled;
+  }
+
+  public int minLength() {
+    return minLength;
+  }
+
+  @Override
+  public String convertToDatabaseColumn(String text) {
+    if (text == null) {
+      return null;
+    }
+    if (enabled && text.length() >= minLength) {
+      String compressed = COMPRESSED + Base64.getEncoder().encodeToString(deflate(text));
+      if (compressed.length() < text.length()) {
+        return compressed;
+      }
+    }
+    if (!text.isEmpty() && (text.charAt(0) == PLAIN || text.charAt(0) == COMPRESSED)) {
+      return PLAIN + text;
+    }
+    return text;
+  }
+
+  @Override
+  public String convertToEntityAttribute(String stored) {
+    if (stored == null || stored.isEmpty()) {
+      return stored;
+    }
+    return switch (stored.charAt(0)) {
+      case COMPRESSED -> inflate(Base64.getDecoder().decode(stored.substring(1)));
+      case PLAIN -> stored.substring(1);
+      default -> stored;
+    };
+  }
+
+  private static byte[] deflate(String text) {
+    byte[] input = text.getBytes(StandardCharsets.UTF_8);
+    Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+    try {
+      deflater.setDictionary(DICTIONARY);
+      deflater.setInput(input);
+      deflater.finish();
+      ByteArrayOutputStream out = new ByteArrayOutputStream(input.length / 2 + 16);
+      byte[] buffer = new byte[1024];
+      while (!deflater.finished()) {
+        out.write(buffer, 0, deflater.deflate(buffer));
+      }
+      return out.toByteArray();
+    } finally {
+      deflater.end();
+    }
+  }
+
+  private static String inflate(byte[] compressed) {
+    Inflater inflater = new Inflater(true);
+    try {
+      inflater.setDictionary(DICTIONARY);
+      inflater.setInput(compressed);
+      ByteArrayOutputStream out = new ByteArrayOutputStream(compressed.length * 3);
+      byte[] buffer = new byte[1024];
+      while (!inflater.finished()) {
+        int n = inflater.inflate(buffer);
+        if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+          throw new IllegalStateException("Truncated compressed note text");
+        }
+        out.write(buffer, 0, n);
+      }
+      return out.toString(StandardCharsets.UTF_8);
+    } catch (DataFormatException e) {
+      throw new IllegalStateException("Corrupt compressed note text", e);
+    } finally {
+      inflater.end();
+    }
+  }
+}
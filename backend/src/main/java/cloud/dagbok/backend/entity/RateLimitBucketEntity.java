@@ -0,0 +1,34 @@
+package cloud.dagbok.backend.entity;
+
+import jakarta.persistence.*;
+
+/**
+ * Serialized Bucket4j state of one rate-limit key, used when {@code rate.limit.store=jdbc}. Only
+ * mapped so the table is created with the rest of the schema; it is read and written with plain
+ * JDBC by {@code JdbcBucketProxyManager}, under {@code SELECT ... FOR UPDATE}. {@code updatedAt} is
+ * epoch milliseconds.
+ */
+@Entity
+@Table(name = "rate_limit_buckets")
+public class RateLimitBucketEntity {
+  @Id private String id;
+
+  @Lob private byte[] state;
+
+  @Column(name = "updated_at", nullable = false)
+  private long updatedAt;
+
+  public RateLimitBucketEntity() {}
+
+  public String getId() {
+    return id;
+  }
+
+  public byte[] getState() {
+    return state;
+  }
+
+  public long getUpdatedAt() {
+    return updatedAt;
+  }
+}
@@ -0,0 +1,41 @@
+package cloud.dagbok.backend.entity;
+
+import jakarta.persistence.*;
+
+/**
+ * A named lease on a scheduled job, so that only one node in a cluster runs it at a time. {@code
+ * lockedUntil} is epoch milliseconds; once it has passed the lease can be taken by any node.
+ */
+@Entity
+@Table(name = "scheduler_locks")
+public class SchedulerLockEntity {
+  @Id
+  @Column(length = 64)
+  private String name;
+
+  @Column(name = "locked_until", nullable = false)
+  private long lockedUntil;
+
+  @Column(name = "locked_by", nullable = false, length = 100)
+  private String lockedBy;
+
+  public SchedulerLockEntity() {}
+
+  public SchedulerLockEntity(String name, long lockedUntil, String lockedBy) {
+    this.name = name;
+    this.lockedUntil = lockedUntil;
+    this.lockedBy = lockedBy;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public long getLockedUntil() {
+    return lockedUntil;
+  }
+
+  public String getLockedBy() {
+    return lockedBy;
+  }
+}
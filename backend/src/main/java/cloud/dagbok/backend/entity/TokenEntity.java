@@ -3,6 +3,11 @@ package cloud.dagbok.backend.entity;
 import jakarta.persistence.*;
 import java.util.UUID;
 
+/**
+ * The session token last issued to a user at login, identified by {@link
+ * cloud.dagbok.backend.utils.JwtUtil.TokenClaims#tokenId()} rather than the JWT itself. The
+ * column keeps its old {@code token} name so existing schemas need no migration.
+ */
 @Entity
 @Table(name = "tokens")
 public class TokenEntity {
@@ -14,14 +19,14 @@ public class TokenEntity {
   @JoinColumn(name = "user_id", nullable = false, unique = true)
   private UserEntity user;
 
-  @Column(nullable = false, unique = true)
-  private String token;
+  @Column(name = "token", nullable = false, unique = true, length = 64)
+  private String tokenId;
 
   public TokenEntity() {}
 
-  public TokenEntity(UserEntity user, String token) {
+  public TokenEntity(UserEntity user, String tokenId) {
     this.user = user;
-    this.token = token;
+    this.tokenId = tokenId;
   }
 
   public UUID getId() {
@@ -40,11 +45,11 @@ public class TokenEntity {
     this.user = user;
   }
 
-  public String getToken() {
-    return token;
+  public String getTokenId() {
+    return tokenId;
   }
 
-  public void setToken(String token) {
-    this.token = token;
+  public void setTokenId(String tokenId) {
+    this.tokenId = tokenId;
   }
 }
@@ -0,0 +1,53 @@
+package cloud.dagbok.backend.entity;
+
+import jakarta.persistence.*;
+
+/**
+ * One revoked token, kept until the token would have expired anyway. Nodes poll this table by
+ * {@code revoked_at} to learn about logouts handled elsewhere. Times are epoch milliseconds.
+ */
+@Entity
+@Table(
+    name = "token_revocations",
+    indexes = {
+      @Index(name = "idx_token_revocations_revoked", columnList = "revoked_at"),
+      @Index(name = "idx_token_revocations_expires", columnList = "expires_at")
+    })
+public class TokenRevocationEntity {
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+
+  @Column(name = "token_id", nullable = false, length = 64)
+  private String tokenId;
+
+  @Column(name = "expires_at", nullable = false)
+  private long expiresAt;
+
+  @Column(name = "revoked_at", nullable = false)
+  private long revokedAt;
+
+  public TokenRevocationEntity() {}
+
+  public TokenRevocationEntity(String tokenId, long expiresAt, long revokedAt) {
+    this.tokenId = tokenId;
+    this.expiresAt = expiresAt;
+    this.revokedAt = revokedAt;
+  }
+
+  public Long getId() {
+    return id;
+  }
+
+  public String getTokenId() {
+    return tokenId;
+  }
+
+  public long getExpiresAt() {
+    return expiresAt;
+  }
+
+  public long getRevokedAt() {
+    return revokedAt;
+  }
+}
@@ -7,11 +7,14 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 import java.util.UUID;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.proxy.HibernateProxy;
 
 @Entity
-@Table(name = "users")
+@Table(
+    name = "users",
+    indexes = @Index(name = "idx_users_role_created", columnList = "role, created_at"))
 public class UserEntity {
   @OneToMany(
       fetch = FetchType.LAZY,
@@ -45,12 +48,39 @@ public class UserEntity {
   @Column(nullable = false, length = 50)
   private Model model;
 
-  @Column(name = "total_costusd", nullable = false)
+  /**
+   * Only ever added to by {@link cloud.dagbok.backend.repository.UserRepository#addToTotalCost}, so
+   * a profile save from a stale entity cannot overwrite a cost added meanwhile.
+   */
+  @Column(name = "total_costusd", nullable = false, updatable = false)
   private Double totalCostUSD = 0.0;
 
-  @Column(name = "monthly_cost", nullable = false)
+  /**
+   * Copy of {@code cost_ledger.spent_usd} for the latest month the user reserved budget in, written
+   * by {@link cloud.dagbok.backend.service.CostLedgerService}. The ledger is authoritative.
+   */
+  @Column(name = "monthly_cost", nullable = false, updatable = false)
   private Double monthlyCost = 0.0;
 
+  /**
+   * Bumped on every change to the user's notes or profile, and only ever by {@link
+   * cloud.dagbok.backend.repository.UserRepository#bumpDataVersion}, so entity saves never write a
+   * stale value back.
+   */
+  @ColumnDefault("0")
+  @Column(name = "data_version", nullable = false, updatable = false)
+  private long dataVersion;
+
+  /**
+   * Whether the user's {@code note_day_counts} rows are known to match their notes. New users start
+   * out complete; users from before the flag existed get {@code false} and are rebuilt once by
+   * {@link cloud.dagbok.backend.service.NoteDayCountService#backfill}, which sets it through {@link
+   * cloud.dagbok.backend.repository.UserRepository#markDayCountsBackfilled}.
+   */
+  @ColumnDefault("false")
+  @Column(name = "day_counts_backfilled", nullable = false, updatable = false)
+  private boolean dayCountsBackfilled = true;
+
   public TokenEntity getToken() {
     return token;
   }
@@ -73,10 +103,6 @@ public class UserEntity {
     return monthlyCost;
   }
 
-  public void setMonthlyCost(Double monthlyCost) {
-    this.monthlyCost = monthlyCost;
-  }
-
   public Double getTotalCostUSD() {
     return totalCostUSD;
   }
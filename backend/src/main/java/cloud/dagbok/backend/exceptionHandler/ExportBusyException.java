@@ -0,0 +1,8 @@
+package cloud.dagbok.backend.exceptionHandler;
+
+public class ExportBusyException extends RuntimeException {
+
+  public ExportBusyException(String message) {
+    super(message);
+  }
+}
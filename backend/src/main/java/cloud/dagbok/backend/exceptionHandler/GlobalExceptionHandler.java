@@ -5,8 +5,10 @@ import jakarta.persistence.EntityNotFoundException;
 import jakarta.servlet.http.HttpServletRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessResourceFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.CannotCreateTransactionException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
@@ -43,6 +45,56 @@ public class GlobalExceptionHandler {
     return ResponseEntity.status(HttpStatus.CONFLICT).body(errorResponse);
   }
 
+  @ExceptionHandler(JobQueueFullException.class)
+  public ResponseEntity<ErrorResponse> handleJobQueueFull(JobQueueFullException ex) {
+    ErrorResponse errorResponse =
+        new ErrorResponse(ex.getMessage(), HttpStatus.SERVICE_UNAVAILABLE.value());
+    return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+        .header("Retry-After", "5")
+        .body(errorResponse);
+  }
+
+  @ExceptionHandler(ExportBusyException.class)
+  public ResponseEntity<ErrorResponse> handleExportBusy(ExportBusyException ex) {
+    ErrorResponse errorResponse =
+        new ErrorResponse(ex.getMessage(), HttpStatus.SERVICE_UNAVAILABLE.value());
+    return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+        .header("Retry-After", "10")
+        .body(errorResponse);
+  }
+
+  @ExceptionHandler(OpenRouterUnavailableException.class)
+  public ResponseEntity<ErrorResponse> handleOpenRouterUnavailable(
+      OpenRouterUnavailableException ex) {
+    ErrorResponse errorResponse =
+        new ErrorResponse(ex.getMessage(), HttpStatus.SERVICE_UNAVAILABLE.value());
+    return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+        .header("Retry-After", "30")
+        .body(errorResponse);
+  }
+
+  /**
+   * The connection pool is exhausted (or the database is down). With virtual threads there is no
+   * request thread limit in front of the pool, so callers that wait longer than the pool's {@code
+   * connection-timeout} end up here and are asked to retry.
+   */
+  @ExceptionHandler({
+    CannotCreateTransactionException.class,
+    DataAccessResourceFailureException.class
+  })
+  public ResponseEntity<ErrorResponse> handleDatabaseUnavailable(Exception ex) {
+    final Logger log = LoggerFactory.getLogger(GlobalExceptionHandler.class);
+
+    log.warn("No database connection available: {}", ex.getMessage());
+
+    ErrorResponse errorResponse =
+        new ErrorResponse(
+            "Service is busy, try again shortly", HttpStatus.SERVICE_UNAVAILABLE.value());
+    return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+        .header("Retry-After", "2")
+        .body(errorResponse);
+  }
+
   @ExceptionHandler(IllegalArgumentException.class)
   public ResponseEntity<ErrorResponse> handleIllegalArgumentException(IllegalArgumentException ex) {
     ErrorResponse errorResponse =
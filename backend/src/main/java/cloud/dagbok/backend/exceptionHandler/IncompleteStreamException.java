@@ -0,0 +1,12 @@
+package cloud.dagbok.backend.exceptionHandler;
+
+/**
+ * The model's stream ended before {@code [DONE]} or a {@code finish_reason}, so the text received
+ * so far is only part of the answer.
+ */
+public class IncompleteStreamException extends RuntimeException {
+
+  public IncompleteStreamException(String message) {
+    super(message);
+  }
+}
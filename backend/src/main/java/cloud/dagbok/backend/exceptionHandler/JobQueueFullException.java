@@ -0,0 +1,8 @@
+package cloud.dagbok.backend.exceptionHandler;
+
+public class JobQueueFullException extends RuntimeException {
+
+  public JobQueueFullException(String message) {
+    super(message);
+  }
+}
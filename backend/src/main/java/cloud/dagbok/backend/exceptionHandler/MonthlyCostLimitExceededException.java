@@ -1,8 +1,8 @@
 package cloud.dagbok.backend.exceptionHandler;
 
 public class MonthlyCostLimitExceededException extends RuntimeException {
+  public static final double LIMIT = 0.01;
   private final Double currentCost;
-  private static final Double LIMIT = 0.01;
 
   public MonthlyCostLimitExceededException(Double currentCost) {
     super(
@@ -0,0 +1,8 @@
+package cloud.dagbok.backend.exceptionHandler;
+
+public class OpenRouterUnavailableException extends RuntimeException {
+
+  public OpenRouterUnavailableException(String message) {
+    super(message);
+  }
+}
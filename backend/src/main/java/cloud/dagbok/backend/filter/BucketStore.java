@@ -0,0 +1,16 @@
+package cloud.dagbok.backend.filter;
+
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.BucketConfiguration;
+import java.util.function.Supplier;
+
+/**
+ * Where {@link RateLimitFilter} keeps its token buckets. Selected with {@code rate.limit.store}:
+ * {@code local} (default) keeps them in this node's memory, {@code jdbc} shares them across nodes
+ * through the database.
+ */
+public interface BucketStore {
+
+  /** Returns the bucket for {@code key}, creating it from {@code configuration} if needed. */
+  Bucket resolve(String key, Supplier<BucketConfiguration> configuration);
+}
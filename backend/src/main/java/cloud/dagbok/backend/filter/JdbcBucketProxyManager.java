@@ -0,0 +1,139 @@
+package cloud.dagbok.backend.filter;
+
+import io.github.bucket4j.BucketExceptions;
+import io.github.bucket4j.distributed.proxy.ClientSideConfig;
+import io.github.bucket4j.distributed.proxy.generic.select_for_update.AbstractSelectForUpdateBasedProxyManager;
+import io.github.bucket4j.distributed.proxy.generic.select_for_update.LockAndGetResult;
+import io.github.bucket4j.distributed.proxy.generic.select_for_update.SelectForUpdateBasedTransaction;
+import io.github.bucket4j.distributed.remote.RemoteBucketState;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.Optional;
+import javax.sql.DataSource;
+
+/**
+ * Bucket4j proxy manager storing serialized bucket state in a plain table, locked with {@code
+ * SELECT ... FOR UPDATE}. Bucket4j 8.10 ships no MySQL module, so this follows the shape of its
+ * PostgreSQL one using only SQL that MySQL and H2 both accept.
+ */
+class JdbcBucketProxyManager extends AbstractSelectForUpdateBasedProxyManager<String> {
+  private final DataSource dataSource;
+  private final String selectSql;
+  private final String insertSql;
+  private final String updateSql;
+  private final String deleteSql;
+
+  JdbcBucketProxyManager(DataSource dataSource, String table) {
+    super(ClientSideConfig.getDefault());
+    this.dataSource = dataSource;
+    this.selectSql = "SELECT state FROM " + table + " WHERE id = ? FOR UPDATE";
+    this.insertSql = "INSERT INTO " + table + " (id, state, updated_at) VALUES (?, NULL, ?)";
+    this.updateSql = "UPDATE " + table + " SET state = ?, updated_at = ? WHERE id = ?";
+    this.deleteSql = "DELETE FROM " + table + " WHERE id = ?";
+  }
+
+  @Override
+  protected SelectForUpdateBasedTransaction allocateTransaction(
+      String key, Optional<Long> requestTimeoutNanos) {
+    Connection connection;
+    try {
+      connection = dataSource.getConnection();
+    } catch (SQLException e) {
+      throw new BucketExceptions.BucketExecutionException(e);
+    }
+
+    return new SelectForUpdateBasedTransaction() {
+      @Override
+      public void begin(Optional<Long> timeout) {
+        try {
+          connection.setAutoCommit(false);
+        } catch (SQLException e) {
+          throw new BucketExceptions.BucketExecutionException(e);
+        }
+      }
+
+      @Override
+      public LockAndGetResult tryLockAndGet(Optional<Long> timeout) {
+        try (PreparedStatement statement = connection.prepareStatement(selectSql)) {
+          applyTimeout(statement, timeout);
+          statement.setString(1, key);
+          try (ResultSet rs = statement.executeQuery()) {
+            return rs.next()
+                ? LockAndGetResult.locked(rs.getBytes(1))
+                : LockAndGetResult.notLocked();
+          }
+        } catch (SQLException e) {
+          throw new BucketExceptions.BucketExecutionException(e);
+        }
+      }
+
+      @Override
+      public boolean tryInsertEmptyData(Optional<Long> timeout) {
+        try (PreparedStatement statement = connection.prepareStatement(insertSql)) {
+          applyTimeout(statement, timeout);
+          statement.setString(1, key);
+          statement.setLong(2, System.currentTimeMillis());
+          return statement.executeUpdate() > 0;
+        } catch (SQLIntegrityConstraintViolationException e) {
+          return false;
+        } catch (SQLException e) {
+          throw new BucketExceptions.BucketExecutionException(e);
+        }
+      }
+
+      @Override
+      public void update(byte[] data, RemoteBucketState newState, Optional<Long> timeout) {
+        try (PreparedStatement statement = connection.prepareStatement(updateSql)) {
+          applyTimeout(statement, timeout);
+          statement.setBytes(1, data);
+          statement.setLong(2, System.currentTimeMillis());
+          statement.setString(3, key);
+          statement.executeUpdate();
+        } catch (SQLException e) {
+          throw new BucketExceptions.BucketExecutionException(e);
+        }
+      }
+
+      @Override
+      public void commit(Optional<Long> timeout) {
+        try {
+          connection.commit();
+        } catch (SQLException e) {
+          throw new BucketExceptions.BucketExecutionException(e);
+        }
+      }
+
+      @Override
+      public void rollback() {
+        try {
+          connection.rollback();
+        } catch (SQLException e) {
+          throw new BucketExceptions.BucketExecutionException(e);
+        }
+      }
+
+      @Override
+      public void release() {
+        try {
+          connection.close();
+        } catch (SQLException e) {
+          throw new BucketExceptions.BucketExecutionException(e);
+        }
+      }
+    };
+  }
+
+  @Override
+  public void removeProxy(String key) {
+    try (Connection connection = dataSource.getConnection();
+        PreparedStatement statement = connection.prepareStatement(deleteSql)) {
+      statement.setString(1, key);
+      statement.executeUpdate();
+    } catch (SQLException e) {
+      throw new BucketExceptions.BucketExecutionException(e);
+    }
+  }
+}
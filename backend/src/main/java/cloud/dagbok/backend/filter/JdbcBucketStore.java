@@ -0,0 +1,114 @@
+package cloud.dagbok.backend.filter;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.distributed.proxy.optimization.DelayParameters;
+import io.github.bucket4j.distributed.proxy.optimization.Optimization;
+import io.github.bucket4j.distributed.proxy.optimization.Optimizations;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import javax.sql.DataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Shares rate-limit buckets across nodes through the {@code rate_limit_buckets} table. By default
+ * every request syncs with the database. With {@code rate.limit.jdbc.max-unsynced-tokens} set, a
+ * node's local proxy may consume up to that many tokens, or wait {@code
+ * rate.limit.jdbc.max-unsynced-millis}, before writing back; each node can then overshoot by that
+ * many tokens, so this only applies to buckets at least {@value #DELAY_MIN_CAPACITY_FACTOR} times
+ * that large, and small ones such as login and demo keep syncing on every request. Rows idle for
+ * longer than the longest configured refill period are removed, which is the same as a full
+ * bucket.
+ */
+@Component
+@ConditionalOnProperty(name = "rate.limit.store", havingValue = "jdbc")
+public class JdbcBucketStore implements BucketStore {
+  private static final String TABLE = "rate_limit_buckets";
+  private static final int DELAY_MIN_CAPACITY_FACTOR = 10;
+
+  private final JdbcTemplate jdbcTemplate;
+  private final JdbcBucketProxyManager proxyManager;
+  private final long maxUnsyncedTokens;
+  private final Optimization delaying;
+  private final Duration idleExpiry;
+  private final Cache<String, Bucket> proxies;
+  private static final Logger log = LoggerFactory.getLogger(JdbcBucketStore.class);
+
+  public JdbcBucketStore(
+      DataSource dataSource,
+      JdbcTemplate jdbcTemplate,
+      @Value("${rate.limit.jdbc.max-unsynced-tokens:0}") long maxUnsyncedTokens,
+      @Value("${rate.limit.jdbc.max-unsynced-millis:500}") long maxUnsyncedMillis,
+      @Value("${rate.limit.default.refill.duration:1}") long defaultRefillMinutes,
+      @Value("${rate.limit.demo.refill.duration:10}") long demoRefillMinutes,
+      @Value("${rate.limit.user.refill.duration:15}") long userRefillMinutes,
+      @Value("${rate.limit.notes.refill.duration:1}") long notesRefillMinutes,
+      MeterRegistry meterRegistry) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.idleExpiry =
+        Duration.ofMinutes(
+            Math.max(
+                Math.max(defaultRefillMinutes, demoRefillMinutes),
+                Math.max(userRefillMinutes, notesRefillMinutes)));
+    this.proxies =
+        Caffeine.newBuilder()
+            .maximumSize(10_000)
+            .expireAfterAccess(idleExpiry)
+            .recordStats()
+            .build();
+    CaffeineCacheMetrics.monitor(meterRegistry, proxies, "ratelimit.buckets");
+    this.maxUnsyncedTokens = maxUnsyncedTokens;
+    this.delaying =
+        maxUnsyncedTokens > 0
+            ? Optimizations.delaying(
+                new DelayParameters(maxUnsyncedTokens, Duration.ofMillis(maxUnsyncedMillis)))
+            : Optimization.NONE_OPTIMIZED;
+    this.proxyManager = new JdbcBucketProxyManager(dataSource, TABLE);
+  }
+
+  @Override
+  public Bucket resolve(String key, Supplier<BucketConfiguration> configuration) {
+    return proxies.get(
+        key,
+        k -> {
+          BucketConfiguration config = configuration.get();
+          return proxyManager
+              .builder()
+              .withOptimization(optimizationFor(config))
+              .build(k, () -> config);
+        });
+  }
+
+  private Optimization optimizationFor(BucketConfiguration configuration) {
+    long capacity =
+        Arrays.stream(configuration.getBandwidths())
+            .mapToLong(Bandwidth::getCapacity)
+            .min()
+            .orElse(0);
+    return maxUnsyncedTokens > 0 && capacity >= DELAY_MIN_CAPACITY_FACTOR * maxUnsyncedTokens
+        ? delaying
+        : Optimization.NONE_OPTIMIZED;
+  }
+
+  @Scheduled(fixedDelay = 10, timeUnit = TimeUnit.MINUTES)
+  public void removeIdleBuckets() {
+    long cutoff = System.currentTimeMillis() - idleExpiry.toMillis();
+    int removed = jdbcTemplate.update("DELETE FROM " + TABLE + " WHERE updated_at < ?", cutoff);
+    if (removed > 0) {
+      log.debug("Removed {} idle rate limit buckets", removed);
+    }
+  }
+}
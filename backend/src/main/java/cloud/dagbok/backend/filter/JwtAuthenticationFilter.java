@@ -1,20 +1,28 @@
 package cloud.dagbok.backend.filter;
 
 import cloud.dagbok.backend.dto.user.Principal;
+import cloud.dagbok.backend.entity.Role;
 import cloud.dagbok.backend.entity.UserEntity;
 import cloud.dagbok.backend.repository.UserRepository;
+import cloud.dagbok.backend.service.TokenRevocationService;
+import cloud.dagbok.backend.service.UserStatusCache;
 import cloud.dagbok.backend.utils.JwtUtil;
+import cloud.dagbok.backend.utils.JwtUtil.TokenClaims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.util.Optional;
 import org.jspecify.annotations.NonNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.context.RequestAttributeSecurityContextRepository;
+import org.springframework.security.web.context.SecurityContextRepository;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
@@ -22,11 +30,21 @@ import org.springframework.web.filter.OncePerRequestFilter;
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
   private final UserRepository userRepository;
+  private final UserStatusCache userStatusCache;
+  private final TokenRevocationService tokenRevocationService;
   private final JwtUtil jwtUtil;
+  private final SecurityContextRepository securityContextRepository =
+      new RequestAttributeSecurityContextRepository();
   private static final Logger log = LoggerFactory.getLogger(JwtAuthenticationFilter.class);
 
-  public JwtAuthenticationFilter(UserRepository userRepository, JwtUtil jwtUtil) {
+  public JwtAuthenticationFilter(
+      UserRepository userRepository,
+      UserStatusCache userStatusCache,
+      TokenRevocationService tokenRevocationService,
+      JwtUtil jwtUtil) {
     this.userRepository = userRepository;
+    this.userStatusCache = userStatusCache;
+    this.tokenRevocationService = tokenRevocationService;
     this.jwtUtil = jwtUtil;
   }
 
@@ -40,7 +58,9 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     return path.equals("/user/login")
         || path.equals("/user/register")
         || path.equals("/user/demo")
+        || path.equals("/health")
         || path.equals("/actuator/health")
+        || path.equals("/actuator/prometheus")
         || path.equals("/api/health")
         || path.equals("/api/status")
         || path.startsWith("/api/public/");
@@ -67,50 +87,72 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
       return;
     }
 
-    if (!jwtUtil.validateJwtToken(token)) {
-      log.warn("Invalid JWT token for path: {}", path);
-      response.sendError(HttpServletResponse.SC_UNAUTHORIZED, "Invalid JWT token");
-      return;
-    }
-
-    String username;
+    TokenClaims claims;
     try {
-      username = jwtUtil.getUsernameFromToken(token);
+      claims = jwtUtil.verify(token);
     } catch (io.jsonwebtoken.ExpiredJwtException e) {
       log.warn("Expired JWT token for path: {}", path);
       response.sendError(HttpServletResponse.SC_UNAUTHORIZED, "Token expired");
       return;
-    } catch (io.jsonwebtoken.JwtException e) {
+    } catch (io.jsonwebtoken.JwtException | IllegalArgumentException e) {
       log.warn("Invalid JWT token for path: {}", path);
       response.sendError(HttpServletResponse.SC_UNAUTHORIZED, "Invalid JWT token");
       return;
     }
 
-    if (username == null) {
+    if (tokenRevocationService.isRevoked(claims.tokenId())) {
+      log.warn("Revoked JWT token for path: {}", path);
+      response.sendError(HttpServletResponse.SC_UNAUTHORIZED, "Token revoked");
+      return;
+    }
+
+    if (claims.username() == null) {
       log.warn("Token does not contain user info for path: {}", path);
       response.sendError(HttpServletResponse.SC_UNAUTHORIZED, "Token does not contain user info");
       return;
     }
 
-    UserEntity user = userRepository.findByUsername(username).orElse(null);
+    Principal principal = resolvePrincipal(claims);
 
-    if (user == null) {
-      log.warn("User not found for username: {} on path: {}", username, path);
+    if (principal == null) {
+      log.warn("User not found for username: {} on path: {}", claims.username(), path);
       response.sendError(HttpServletResponse.SC_UNAUTHORIZED, "User not found for provided token");
       return;
     }
 
-    log.debug("Authenticated user: {} for path: {}", username, path);
+    log.debug("Authenticated user: {} for path: {}", principal.username(), path);
 
-    Principal principal = new Principal(user.getId(), user.getUsername());
     UsernamePasswordAuthenticationToken authentication =
         new UsernamePasswordAuthenticationToken(
             principal, null, AuthorityUtils.createAuthorityList("ROLE_API_USER"));
-    SecurityContextHolder.getContext().setAuthentication(authentication);
+    SecurityContext context = SecurityContextHolder.createEmptyContext();
+    context.setAuthentication(authentication);
+    SecurityContextHolder.setContext(context);
+    // This filter is skipped on async dispatches (SSE, streaming); the saved context lets them
+    // be authorized as the same user
+    securityContextRepository.saveContext(context, request, response);
 
     filterChain.doFilter(request, response);
   }
 
+  /**
+   * Builds the principal from the signed claims, checking the user's current role through {@link
+   * UserStatusCache} so deleted users and role changes are still rejected. Tokens issued before
+   * the id and role claims existed fall back to a lookup by username.
+   */
+  private Principal resolvePrincipal(TokenClaims claims) {
+    if (claims.userId() == null || claims.role() == null) {
+      UserEntity user = userRepository.findByUsername(claims.username()).orElse(null);
+      return user != null ? new Principal(user.getId(), user.getUsername(), user.getRole()) : null;
+    }
+
+    Optional<Role> currentRole = userStatusCache.currentRole(claims.userId());
+    if (currentRole.isEmpty() || currentRole.get() != claims.role()) {
+      return null;
+    }
+    return new Principal(claims.userId(), claims.username(), claims.role());
+  }
+
   private String extractTokenFromCookie(HttpServletRequest request) {
     if (request.getCookies() != null) {
       for (jakarta.servlet.http.Cookie cookie : request.getCookies()) {
@@ -0,0 +1,42 @@
+package cloud.dagbok.backend.filter;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.local.LocalBucketBuilder;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import java.util.function.Supplier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConditionalOnProperty(name = "rate.limit.store", havingValue = "local", matchIfMissing = true)
+public class LocalBucketStore implements BucketStore {
+  private final Cache<String, Bucket> cache =
+      Caffeine.newBuilder()
+          .maximumSize(10_000)
+          .expireAfterAccess(Duration.ofHours(1))
+          .recordStats()
+          .build();
+
+  public LocalBucketStore(MeterRegistry meterRegistry) {
+    CaffeineCacheMetrics.monitor(meterRegistry, cache, "ratelimit.buckets");
+  }
+
+  @Override
+  public Bucket resolve(String key, Supplier<BucketConfiguration> configuration) {
+    return cache.get(
+        key,
+        k -> {
+          LocalBucketBuilder builder = Bucket.builder();
+          for (Bandwidth bandwidth : configuration.get().getBandwidths()) {
+            builder.addLimit(bandwidth);
+          }
+          return builder.build();
+        });
+  }
+}
@@ -1,16 +1,20 @@
 package cloud.dagbok.backend.filter;
 
 import cloud.dagbok.backend.dto.user.Principal;
-import com.github.benmanes.caffeine.cache.Cache;
-import com.github.benmanes.caffeine.cache.Caffeine;
 import io.github.bucket4j.Bandwidth;
 import io.github.bucket4j.Bucket;
+import io.github.bucket4j.BucketConfiguration;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import org.jspecify.annotations.NonNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -25,8 +29,12 @@ import org.springframework.web.filter.OncePerRequestFilter;
 @Component
 @ConditionalOnProperty(name = "rate.limit.enabled", havingValue = "true", matchIfMissing = true)
 public class RateLimitFilter extends OncePerRequestFilter {
-  private final Cache<String, Bucket> cache =
-      Caffeine.newBuilder().maximumSize(10_000).expireAfterAccess(Duration.ofHours(1)).build();
+  private static final List<String> BUCKET_TYPES =
+      List.of("auth", "demo", "me", "notes", "default");
+
+  private final BucketStore bucketStore;
+  private final Map<String, Counter> accepted = new HashMap<>();
+  private final Map<String, Counter> rejected = new HashMap<>();
 
   private static final Logger log = LoggerFactory.getLogger(RateLimitFilter.class);
 
@@ -54,6 +62,22 @@ public class RateLimitFilter extends OncePerRequestFilter {
   @Value("${rate.limit.notes.refill.duration:1}")
   private int notesRefillDuration;
 
+  public RateLimitFilter(BucketStore bucketStore, MeterRegistry meterRegistry) {
+    this.bucketStore = bucketStore;
+    for (String type : BUCKET_TYPES) {
+      accepted.put(type, requestCounter(meterRegistry, type, "accepted"));
+      rejected.put(type, requestCounter(meterRegistry, type, "rejected"));
+    }
+  }
+
+  private static Counter requestCounter(MeterRegistry meterRegistry, String type, String outcome) {
+    return Counter.builder("ratelimit.requests")
+        .description("Requests checked against a rate limit bucket")
+        .tag("bucket", type)
+        .tag("outcome", outcome)
+        .register(meterRegistry);
+  }
+
   @Override
   protected void doFilterInternal(
       @NonNull HttpServletRequest request,
@@ -64,11 +88,14 @@ public class RateLimitFilter extends OncePerRequestFilter {
     String key = resolveKey(request);
     String path = request.getRequestURI();
 
-    Bucket bucket = resolveBucket(key, path);
+    String type = bucketType(path);
+    Bucket bucket = resolveBucket(key, type);
 
     if (bucket.tryConsume(1)) {
+      accepted.get(type).increment();
       filterChain.doFilter(request, response);
     } else {
+      rejected.get(type).increment();
       long waitForRefill =
           bucket.estimateAbilityToConsume(1).getNanosToWaitForRefill() / 1_000_000_000;
 
@@ -86,70 +113,63 @@ public class RateLimitFilter extends OncePerRequestFilter {
     }
   }
 
-  private Bucket resolveBucket(String key, String path) {
+  static String bucketType(String path) {
     if (path.startsWith("/user/login") || path.startsWith("/user/register")) {
-      return cache.get(key + ":auth", k -> createAuthBucket());
+      return "auth";
     }
     if (path.startsWith("/user/demo")) {
-      return cache.get(key + ":demo", k -> createDemoBucket());
+      return "demo";
     }
     if (path.startsWith("/user/me")) {
-      return cache.get(key + ":me", k -> createCheckMeBucket());
+      return "me";
     }
     if (path.startsWith("/api/notes")) {
-      return cache.get(key + ":notes", k -> createNotesBucket());
+      return "notes";
     }
-    return cache.get(key + ":default", k -> createDefaultBucket());
+    return "default";
   }
 
-  private Bucket createDefaultBucket() {
-    Bandwidth limit =
-        Bandwidth.builder()
-            .capacity(defaultCapacity)
-            .refillIntervally(defaultCapacity, Duration.ofMinutes(defaultDuration))
-            .build();
-
-    return Bucket.builder().addLimit(limit).build();
+  Bucket resolveBucket(String key, String type) {
+    return switch (type) {
+      case "auth" -> bucketStore.resolve(key + ":auth", this::authConfiguration);
+      case "demo" -> bucketStore.resolve(key + ":demo", this::demoConfiguration);
+      case "me" -> bucketStore.resolve(key + ":me", this::checkMeConfiguration);
+      case "notes" -> bucketStore.resolve(key + ":notes", this::notesConfiguration);
+      default -> bucketStore.resolve(key + ":default", this::defaultConfiguration);
+    };
   }
 
-  private Bucket createAuthBucket() {
-    Bandwidth limit =
-        Bandwidth.builder()
-            .capacity(userCapacity)
-            .refillIntervally(userCapacity, Duration.ofMinutes(userRefillDuration))
-            .build();
-
-    return Bucket.builder().addLimit(limit).build();
+  private BucketConfiguration defaultConfiguration() {
+    return perMinutes(defaultCapacity, defaultDuration);
   }
 
-  private Bucket createDemoBucket() {
-    Bandwidth limit =
-        Bandwidth.builder()
-            .capacity(demoCapacity)
-            .refillIntervally(demoCapacity, Duration.ofMinutes(demoRefillDuration))
-            .build();
+  private BucketConfiguration authConfiguration() {
+    return perMinutes(userCapacity, userRefillDuration);
+  }
 
-    return Bucket.builder().addLimit(limit).build();
+  private BucketConfiguration demoConfiguration() {
+    return perMinutes(demoCapacity, demoRefillDuration);
   }
 
-  private Bucket createCheckMeBucket() {
-    Bandwidth limit =
-        Bandwidth.builder().capacity(200).refillIntervally(200, Duration.ofMinutes(1)).build();
+  private BucketConfiguration checkMeConfiguration() {
+    return perMinutes(200, 1);
+  }
 
-    return Bucket.builder().addLimit(limit).build();
+  private BucketConfiguration notesConfiguration() {
+    return perMinutes(notesCapacity, notesRefillDuration);
   }
 
-  private Bucket createNotesBucket() {
+  private static BucketConfiguration perMinutes(int capacity, int minutes) {
     Bandwidth limit =
         Bandwidth.builder()
-            .capacity(notesCapacity)
-            .refillIntervally(notesCapacity, Duration.ofMinutes(notesRefillDuration))
+            .capacity(capacity)
+            .refillIntervally(capacity, Duration.ofMinutes(minutes))
             .build();
 
-    return Bucket.builder().addLimit(limit).build();
+    return BucketConfiguration.builder().addLimit(limit).build();
   }
 
-  private String resolveKey(HttpServletRequest request) {
+  String resolveKey(HttpServletRequest request) {
     Authentication auth = SecurityContextHolder.getContext().getAuthentication();
 
     if (auth != null && auth.isAuthenticated() && auth.getPrincipal() instanceof Principal p) {
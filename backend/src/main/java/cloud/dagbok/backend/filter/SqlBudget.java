@@ -0,0 +1,24 @@
+package cloud.dagbok.backend.filter;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * The most SQL statements one request to the annotated endpoint may issue, authentication
+ * included. {@link SqlStatementFilter} logs requests that go over it, or fails them when {@code
+ * sql.statements.fail-over-budget} is set, as it is for tests ({@code SqlBudgetTest} calls every
+ * annotated endpoint).
+ *
+ * <p>Only statements on the request thread count. Endpoints that do their database work on
+ * another thread, such as async note jobs and the SSE stream, would always look within budget, so
+ * they carry none.
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface SqlBudget {
+  int value();
+}
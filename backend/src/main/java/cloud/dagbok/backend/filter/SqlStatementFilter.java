@@ -0,0 +1,164 @@
+package cloud.dagbok.backend.filter;
+
+import cloud.dagbok.backend.utils.SqlStatementCounter;
+import cloud.dagbok.backend.utils.SqlStatementCounter.Counts;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.io.PrintWriter;
+import org.jspecify.annotations.NonNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * Counts the SQL statements Hibernate issues while handling each request, including those of the
+ * security filters, and records them as {@code http.server.requests.sql} per route. With {@code
+ * sql.statements.header} the count is also sent back as {@value #HEADER}.
+ *
+ * <p>Requests to endpoints annotated with {@link SqlBudget} that go over it are logged, or failed
+ * with an {@link IllegalStateException} when {@code sql.statements.fail-over-budget} is set, so a
+ * change that adds queries to an endpoint breaks the tests instead of slipping through. The same
+ * select run {@code sql.statements.repeat-threshold} times in one request is logged as a likely
+ * N+1.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class SqlStatementFilter extends OncePerRequestFilter {
+  static final String HEADER = "X-SQL-Statements";
+
+  private final MeterRegistry meterRegistry;
+  private final boolean exposeHeader;
+  private final boolean failOverBudget;
+  private final int repeatThreshold;
+  private static final Logger log = LoggerFactory.getLogger(SqlStatementFilter.class);
+
+  public SqlStatementFilter(
+      MeterRegistry meterRegistry,
+      @Value("${sql.statements.header:false}") boolean exposeHeader,
+      @Value("${sql.statements.fail-over-budget:false}") boolean failOverBudget,
+      @Value("${sql.statements.repeat-threshold:5}") int repeatThreshold) {
+    this.meterRegistry = meterRegistry;
+    this.exposeHeader = exposeHeader;
+    this.failOverBudget = failOverBudget;
+    this.repeatThreshold = repeatThreshold;
+  }
+
+  @Override
+  protected void doFilterInternal(
+      @NonNull HttpServletRequest request,
+      @NonNull HttpServletResponse response,
+      @NonNull FilterChain filterChain)
+      throws ServletException, IOException {
+    Counts counts = SqlStatementCounter.start();
+    try {
+      filterChain.doFilter(
+          request, exposeHeader ? new StatementCountResponse(response, counts) : response);
+    } finally {
+      SqlStatementCounter.stop();
+      if (exposeHeader && !response.isCommitted()) {
+        response.setHeader(HEADER, String.valueOf(counts.statements()));
+      }
+      record(request, counts);
+    }
+    checkBudget(request, counts);
+  }
+
+  private void record(HttpServletRequest request, Counts counts) {
+    Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+    DistributionSummary.builder("http.server.requests.sql")
+        .description("SQL statements issued per request")
+        .baseUnit("statements")
+        .tag("method", request.getMethod())
+        .tag("uri", pattern != null ? pattern.toString() : "UNKNOWN")
+        .register(meterRegistry)
+        .record(counts.statements());
+
+    if (counts.mostRepeatedCount() >= repeatThreshold) {
+      log.warn(
+          "Possible N+1 on {} {}: same query ran {} times: {}",
+          request.getMethod(),
+          request.getRequestURI(),
+          counts.mostRepeatedCount(),
+          counts.mostRepeatedSelect());
+    }
+  }
+
+  private void checkBudget(HttpServletRequest request, Counts counts) {
+    if (!(request.getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE)
+        instanceof HandlerMethod handler)) {
+      return;
+    }
+    SqlBudget budget = handler.getMethodAnnotation(SqlBudget.class);
+    if (budget == null || counts.statements() <= budget.value()) {
+      return;
+    }
+
+    String message =
+        "%s %s issued %d SQL statements, over its budget of %d"
+            .formatted(
+                request.getMethod(), request.getRequestURI(), counts.statements(), budget.value());
+    if (failOverBudget) {
+      throw new IllegalStateException(message);
+    }
+    log.warn(message);
+  }
+
+  /** Sets the count header just before the response starts, when it can still be added. */
+  private static final class StatementCountResponse extends HttpServletResponseWrapper {
+    private final Counts counts;
+
+    private StatementCountResponse(HttpServletResponse response, Counts counts) {
+      super(response);
+      this.counts = counts;
+    }
+
+    private void setCountHeader() {
+      if (!isCommitted()) {
+        setHeader(HEADER, String.valueOf(counts.statements()));
+      }
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+      setCountHeader();
+      return super.getOutputStream();
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+      setCountHeader();
+      return super.getWriter();
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+      setCountHeader();
+      super.flushBuffer();
+    }
+
+    @Override
+    public void sendError(int sc, String msg) throws IOException {
+      setCountHeader();
+      super.sendError(sc, msg);
+    }
+
+    @Override
+    public void sendError(int sc) throws IOException {
+      setCountHeader();
+      super.sendError(sc);
+    }
+  }
+}
@@ -0,0 +1,68 @@
+package cloud.dagbok.backend.repository;
+
+import cloud.dagbok.backend.entity.CostLedgerEntity;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.UUID;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface CostLedgerRepository extends JpaRepository<CostLedgerEntity, UUID> {
+  Optional<CostLedgerEntity> findByUserIdAndPeriod(UUID userId, String period);
+
+  /** Reserves {@code amount} only if it keeps spent + reserved within {@code limit}. */
+  @Modifying
+  @Query(
+"""
+    UPDATE CostLedgerEntity c
+    SET c.reservedUsd = c.reservedUsd + :amount,
+        c.reservedAt = :now
+    WHERE c.userId = :userId
+      AND c.period = :period
+      AND c.spentUsd + c.reservedUsd + :amount <= :limit
+""")
+  int reserve(
+      @Param("userId") UUID userId,
+      @Param("period") String period,
+      @Param("amount") double amount,
+      @Param("limit") double limit,
+      @Param("now") LocalDateTime now);
+
+  /**
+   * Replaces a reservation with the actual cost; pass {@code actual = 0} to release it. The
+   * reserved total never drops below zero, in case the reservation was already released as stale.
+   */
+  @Modifying
+  @Query(
+"""
+    UPDATE CostLedgerEntity c
+    SET c.reservedUsd = GREATEST(c.reservedUsd - :reserved, 0),
+        c.spentUsd = c.spentUsd + :actual
+    WHERE c.userId = :userId
+      AND c.period = :period
+""")
+  int settle(
+      @Param("userId") UUID userId,
+      @Param("period") String period,
+      @Param("reserved") double reserved,
+      @Param("actual") double actual);
+
+  /** Releases everything reserved on rows whose latest reservation was made before {@code before}. */
+  @Modifying
+  @Query(
+"""
+    UPDATE CostLedgerEntity c
+    SET c.reservedUsd = 0,
+        c.reservedAt = NULL
+    WHERE c.reservedUsd > 0
+      AND (c.reservedAt IS NULL OR c.reservedAt < :before)
+""")
+  int releaseReservedBefore(@Param("before") LocalDateTime before);
+
+  @Modifying
+  @Query("DELETE FROM CostLedgerEntity c WHERE c.userId IN :userIds")
+  void deleteByUserIdIn(@Param("userIds") Collection<UUID> userIds);
+}
@@ -0,0 +1,44 @@
+package cloud.dagbok.backend.repository;
+
+import cloud.dagbok.backend.dto.note.NotesCountByDate;
+import cloud.dagbok.backend.entity.NoteDayCountEntity;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface NoteDayCountRepository extends JpaRepository<NoteDayCountEntity, UUID> {
+
+  @Query(
+"""
+    SELECT new cloud.dagbok.backend.dto.note.NotesCountByDate(c.date, c.count)
+    FROM NoteDayCountEntity c
+    WHERE c.userId = :userId
+      AND c.date >= :from
+      AND c.date < :to
+      AND c.count > 0
+    ORDER BY c.date ASC
+""")
+  List<NotesCountByDate> findCounts(
+      @Param("userId") UUID userId, @Param("from") LocalDate from, @Param("to") LocalDate to);
+
+  @Modifying
+  @Query(
+"""
+    UPDATE NoteDayCountEntity c
+    SET c.count = c.count + :delta
+    WHERE c.userId = :userId
+      AND c.date = :date
+      AND c.count + :delta >= 0
+""")
+  int adjustCount(
+      @Param("userId") UUID userId, @Param("date") LocalDate date, @Param("delta") long delta);
+
+  @Modifying
+  @Query("DELETE FROM NoteDayCountEntity c WHERE c.userId IN :userIds")
+  void deleteByUserIdIn(@Param("userIds") Collection<UUID> userIds);
+}
@@ -1,60 +1,178 @@
 package cloud.dagbok.backend.repository;
 
+import cloud.dagbok.backend.dto.note.NoteItem;
+import cloud.dagbok.backend.dto.note.NoteKeysetRow;
+import cloud.dagbok.backend.dto.note.NoteRangeRow;
 import cloud.dagbok.backend.dto.note.NotesCountByDate;
 import cloud.dagbok.backend.entity.NoteEntity;
+import jakarta.persistence.LockModeType;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 public interface NoteRepository extends JpaRepository<NoteEntity, UUID> {
   Optional<NoteEntity> findByIdAndUserIdAndDeletedAtIsNull(UUID id, UUID userId);
 
-  List<NoteEntity> findByDateAndUserIdAndDeletedAtIsNull(LocalDate date, UUID userId);
+  /** First page of a day's live notes in {@code (createdAt, id)} order. */
+  @Query(
+"""
+    SELECT new cloud.dagbok.backend.dto.note.NoteKeysetRow(n.id, n.text, n.createdAt)
+    FROM NoteEntity n
+    WHERE n.user.id = :userId
+      AND n.date = :date
+      AND n.deletedAt IS NULL
+    ORDER BY n.createdAt ASC, n.id ASC
+""")
+  List<NoteKeysetRow> findPageByDate(
+      @Param("userId") UUID userId, @Param("date") LocalDate date, Pageable pageable);
 
+  /** Next page of a day's live notes, strictly after the {@code (createdAt, id)} of the cursor. */
+  @Query(
+"""
+    SELECT new cloud.dagbok.backend.dto.note.NoteKeysetRow(n.id, n.text, n.createdAt)
+    FROM NoteEntity n
+    WHERE n.user.id = :userId
+      AND n.date = :date
+      AND n.deletedAt IS NULL
+      AND (n.createdAt > :createdAt OR (n.createdAt = :createdAt AND n.id > :id))
+    ORDER BY n.createdAt ASC, n.id ASC
+""")
+  List<NoteKeysetRow> findPageByDateAfter(
+      @Param("userId") UUID userId,
+      @Param("date") LocalDate date,
+      @Param("createdAt") LocalDateTime createdAt,
+      @Param("id") UUID id,
+      Pageable pageable);
+
+  /**
+   * Live notes dated in {@code [from, to)}, in day and then creation order. Reads only the note
+   * columns (no user join) and filters on the {@code (user_id, deleted_at, date)} index.
+   */
+  @Query(
+"""
+    SELECT new cloud.dagbok.backend.dto.note.NoteRangeRow(n.id, n.date, n.text)
+    FROM NoteEntity n
+    WHERE n.user.id = :userId
+      AND n.deletedAt IS NULL
+      AND n.date >= :from
+      AND n.date < :to
+    ORDER BY n.date ASC, n.createdAt ASC, n.id ASC
+""")
+  List<NoteRangeRow> findByDateRange(
+      @Param("userId") UUID userId,
+      @Param("from") LocalDate from,
+      @Param("to") LocalDate to,
+      Pageable pageable);
+
+  /**
+   * Counts live notes per day in {@code [from, to)}. Comparing the raw column (rather than
+   * YEAR()/MONTH() of it) lets the database use the {@code (user_id, deleted_at, date)} index.
+   */
   @Query(
 """
     SELECT new cloud.dagbok.backend.dto.note.NotesCountByDate(n.date, COUNT(n))
     FROM NoteEntity n
     WHERE n.user.id = :userId
       AND n.deletedAt IS NULL
-      AND YEAR(n.date) = :year
-      AND MONTH(n.date) = :month
+      AND n.date >= :from
+      AND n.date < :to
     GROUP BY n.date
     ORDER BY n.date ASC
 """)
   List<NotesCountByDate> countNotesByDate(
-      @Param("userId") UUID userId, @Param("year") int year, @Param("month") int month);
+      @Param("userId") UUID userId, @Param("from") LocalDate from, @Param("to") LocalDate to);
+
+  @Query(
+"""
+    SELECT new cloud.dagbok.backend.dto.note.NotesCountByDate(n.date, COUNT(n))
+    FROM NoteEntity n
+    WHERE n.user.id = :userId
+      AND n.deletedAt IS NULL
+    GROUP BY n.date
+""")
+  List<NotesCountByDate> countAllNotesByDate(@Param("userId") UUID userId);
+
+  @Query(
+"""
+    SELECT new cloud.dagbok.backend.dto.note.NoteItem(n.id, n.text)
+    FROM NoteEntity n
+    WHERE n.id IN :ids
+      AND n.user.id = :userId
+      AND n.deletedAt IS NULL
+""")
+  List<NoteItem> findItemsByIdIn(@Param("ids") Collection<UUID> ids, @Param("userId") UUID userId);
+
+  /** Live notes that have no rows in the search index yet, in id order, for the backfill. */
+  @Query(
+"""
+    SELECT n
+    FROM NoteEntity n
+    WHERE n.deletedAt IS NULL
+      AND n.id > :after
+      AND NOT EXISTS (SELECT 1 FROM NoteTermEntity t WHERE t.noteId = n.id)
+    ORDER BY n.id
+""")
+  List<NoteEntity> findUnindexedAfter(@Param("after") UUID after, Pageable pageable);
 
   /**
-   * Finds notes containing the specified text for a given user.
-   *
-   * <p>Performance note: This query uses LIKE %searchText% which performs a full table scan.
-   * For better performance with large datasets, consider:
-   * <ul>
-   *   <li>Adding a database index on the 'text' column if supported by your database</li>
-   *   <li>Using full-text search capabilities (e.g., PostgreSQL's to_tsvector/to_tsquery)</li>
-   *   <li>Implementing a dedicated search engine (e.g., Elasticsearch) for complex search requirements</li>
-   * </ul>
+   * Notes of at least {@code minLength} stored characters that are not stored compressed yet, in
+   * id order, for the re-encoding job. An uncompressed row is stored as its text, so its stored
+   * length is the length the converter compares with {@code notes.compression.min-length}.
    *
-   * @param searchText the text to search for within note contents
-   * @param userId the ID of the user whose notes should be searched
-   * @return list of notes containing the search text
+   * <p>Both sides are compared in the stored form. The CAST keeps Hibernate from typing {@code
+   * :compressedMarker} as a note text and binding it through {@link
+   * cloud.dagbok.backend.entity.NoteTextConverter}, which would escape it and match every row.
    */
-  List<NoteEntity> findByTextContainingIgnoreCaseAndUserIdAndDeletedAtIsNull(
-      String searchText, UUID userId);
+  @Query(
+"""
+    SELECT n.id
+    FROM NoteEntity n
+    WHERE n.id > :after
+      AND LENGTH(n.text) >= :minLength
+      AND SUBSTRING(CAST(n.text AS String), 1, 1) <> :compressedMarker
+    ORDER BY n.id
+""")
+  List<UUID> findUncompressedIdsAfter(
+      @Param("after") UUID after,
+      @Param("minLength") int minLength,
+      @Param("compressedMarker") String compressedMarker,
+      Pageable pageable);
+
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @Query("SELECT n FROM NoteEntity n WHERE n.id IN :ids")
+  List<NoteEntity> findAllForUpdate(@Param("ids") Collection<UUID> ids);
+
+  /**
+   * Writes {@code text} through the column's converter. Needed to re-encode a note whose text has
+   * not changed, which dirty checking would skip.
+   */
+  @Modifying
+  @Query("UPDATE NoteEntity n SET n.text = :text WHERE n.id = :id")
+  int rewriteText(@Param("id") UUID id, @Param("text") String text);
 
   @Query(
 """
     SELECT COALESCE(SUM(n.costUSD), 0.0)
     FROM NoteEntity n
     WHERE n.user.id = :userId
-      AND YEAR(n.date) = :year
-      AND MONTH(n.date) = :month
+      AND n.createdAt >= :from
+      AND n.createdAt < :to
 """)
-  Double getTotalCostUSDByUserIdByMonth(
-      @Param("userId") UUID userId, @Param("year") int year, @Param("month") int month);
+  Double getTotalCostUSDByUserIdBetween(
+      @Param("userId") UUID userId,
+      @Param("from") LocalDateTime from,
+      @Param("to") LocalDateTime to);
+
+  @Modifying
+  @Query("DELETE FROM NoteEntity n WHERE n.user.id IN :userIds")
+  void deleteByUserIdIn(@Param("userIds") Collection<UUID> userIds);
 }
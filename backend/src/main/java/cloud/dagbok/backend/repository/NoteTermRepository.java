@@ -0,0 +1,21 @@
+package cloud.dagbok.backend.repository;
+
+import cloud.dagbok.backend.entity.NoteTermEntity;
+import java.util.Collection;
+import java.util.UUID;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface NoteTermRepository
+    extends JpaRepository<NoteTermEntity, UUID>, NoteTermSearchRepository {
+
+  @Modifying
+  @Query("DELETE FROM NoteTermEntity t WHERE t.noteId = :noteId")
+  void deleteByNoteId(@Param("noteId") UUID noteId);
+
+  @Modifying
+  @Query("DELETE FROM NoteTermEntity t WHERE t.userId IN :userIds")
+  void deleteByUserIdIn(@Param("userIds") Collection<UUID> userIds);
+}
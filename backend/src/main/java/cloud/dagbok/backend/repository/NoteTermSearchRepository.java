@@ -0,0 +1,27 @@
+package cloud.dagbok.backend.repository;
+
+import cloud.dagbok.backend.dto.note.NoteRanking;
+import cloud.dagbok.backend.dto.note.NoteScore;
+import cloud.dagbok.backend.dto.note.NoteSearchStats;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Search queries over {@code note_terms} whose shape depends on the number of query terms. Terms
+ * match as prefixes and must not contain % or _.
+ */
+public interface NoteTermSearchRepository {
+  /** Scores are rounded so a cursor's score compares equal to the one it was read from. */
+  int SCORE_SCALE = 6;
+
+  /** The user's live note count and each term's document frequency, in one statement. */
+  NoteSearchStats findSearchStats(UUID userId, List<String> terms);
+
+  /**
+   * Up to {@code limit} notes that contain every term, scored as the sum over terms of {@code (1 +
+   * ln(tf)) * weight} rounded to {@value #SCORE_SCALE} decimals, best first, ties broken by note
+   * id. With {@code after}, only notes ranked behind it are returned.
+   */
+  NoteRanking rankByTerms(
+      UUID userId, List<String> terms, List<Double> weights, NoteScore after, int limit);
+}
@@ -0,0 +1,110 @@
+package cloud.dagbok.backend.repository;
+
+import cloud.dagbok.backend.dto.note.NoteRanking;
+import cloud.dagbok.backend.dto.note.NoteScore;
+import cloud.dagbok.backend.dto.note.NoteSearchStats;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import jakarta.persistence.TypedQuery;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Builds the search queries for the given number of terms. Each term is a prefix range on the
+ * {@code (user_id, term)} index; the scoring, the every-term check and the keyset happen in the
+ * GROUP BY, so only the rows of one page leave the database.
+ */
+class NoteTermSearchRepositoryImpl implements NoteTermSearchRepository {
+  private final EntityManager entityManager;
+
+  NoteTermSearchRepositoryImpl(EntityManager entityManager) {
+    this.entityManager = entityManager;
+  }
+
+  @Override
+  public NoteSearchStats findSearchStats(UUID userId, List<String> terms) {
+    StringBuilder jpql =
+        new StringBuilder(
+            """
+            SELECT (SELECT COUNT(n) FROM NoteEntity n
+                    WHERE n.user.id = :userId AND n.deletedAt IS NULL)\
+            """);
+    for (int i = 0; i < terms.size(); i++) {
+      jpql.append(",\n COUNT(DISTINCT CASE WHEN t.term LIKE :p%d THEN t.noteId END)".formatted(i));
+    }
+    jpql.append("\nFROM NoteTermEntity t\nWHERE t.userId = :userId AND ").append(anyTerm(terms));
+
+    Object[] row =
+        bind(entityManager.createQuery(jpql.toString(), Object[].class), userId, terms)
+            .getSingleResult();
+    List<Long> frequencies = new ArrayList<>(terms.size());
+    for (int i = 1; i < row.length; i++) {
+      frequencies.add(((Number) row[i]).longValue());
+    }
+    return new NoteSearchStats(((Number) row[0]).longValue(), frequencies);
+  }
+
+  @Override
+  public NoteRanking rankByTerms(
+      UUID userId, List<String> terms, List<Double> weights, NoteScore after, int limit) {
+    StringBuilder score = new StringBuilder();
+    StringBuilder having = new StringBuilder();
+    for (int i = 0; i < terms.size(); i++) {
+      String frequency = "SUM(CASE WHEN t.term LIKE :p%d THEN t.frequency ELSE 0 END)".formatted(i);
+      // Notes without the term are dropped by HAVING, but some databases compute the score first
+      score.append(
+          (i == 0 ? "" : " + ") + "(1 + LN(GREATEST(%s, 1))) * :w%d".formatted(frequency, i));
+      having.append((i == 0 ? "" : " AND ") + frequency + " > 0");
+    }
+    String rounded = "ROUND(%s, %d)".formatted(score, SCORE_SCALE);
+    if (after != null) {
+      having.append(
+          "\n AND (%1$s < :afterScore OR (%1$s = :afterScore AND t.noteId > :afterId))"
+              .formatted(rounded));
+    }
+    // The window count is taken after HAVING but before the row limit
+    String jpql =
+        """
+        SELECT t.noteId AS noteId, %s AS score, COUNT(*) OVER () AS remaining
+        FROM NoteTermEntity t
+        WHERE t.userId = :userId AND %s
+        GROUP BY t.noteId
+        HAVING %s
+        ORDER BY score DESC, noteId
+        """
+            .formatted(rounded, anyTerm(terms), having);
+
+    TypedQuery<Object[]> query =
+        bind(entityManager.createQuery(jpql, Object[].class), userId, terms);
+    for (int i = 0; i < weights.size(); i++) {
+      query.setParameter("w" + i, weights.get(i));
+    }
+    if (after != null) {
+      query.setParameter("afterScore", after.score());
+      query.setParameter("afterId", after.noteId());
+    }
+    List<Object[]> rows = query.setMaxResults(limit).getResultList();
+    return new NoteRanking(
+        rows.stream()
+            .map(row -> new NoteScore((UUID) row[0], ((Number) row[1]).doubleValue()))
+            .toList(),
+        rows.isEmpty() ? 0 : ((Number) rows.getFirst()[2]).longValue());
+  }
+
+  private static String anyTerm(List<String> terms) {
+    List<String> conditions = new ArrayList<>(terms.size());
+    for (int i = 0; i < terms.size(); i++) {
+      conditions.add("t.term LIKE :p" + i);
+    }
+    return "(" + String.join(" OR ", conditions) + ")";
+  }
+
+  private static <Q extends Query> Q bind(Q query, UUID userId, List<String> terms) {
+    query.setParameter("userId", userId);
+    for (int i = 0; i < terms.size(); i++) {
+      query.setParameter("p" + i, terms.get(i) + "%");
+    }
+    return query;
+  }
+}
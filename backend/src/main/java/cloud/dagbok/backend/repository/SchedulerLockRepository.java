@@ -0,0 +1,35 @@
+package cloud.dagbok.backend.repository;
+
+import cloud.dagbok.backend.entity.SchedulerLockEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface SchedulerLockRepository extends JpaRepository<SchedulerLockEntity, String> {
+
+  /** Takes the lease if it has run out (or is already ours); returns 0 if another node holds it. */
+  @Modifying
+  @Query(
+"""
+    UPDATE SchedulerLockEntity l
+    SET l.lockedUntil = :until, l.lockedBy = :owner
+    WHERE l.name = :name
+      AND (l.lockedUntil <= :now OR l.lockedBy = :owner)
+""")
+  int tryLock(
+      @Param("name") String name,
+      @Param("owner") String owner,
+      @Param("now") long now,
+      @Param("until") long until);
+
+  @Modifying
+  @Query(
+"""
+    UPDATE SchedulerLockEntity l
+    SET l.lockedUntil = :now
+    WHERE l.name = :name
+      AND l.lockedBy = :owner
+""")
+  int unlock(@Param("name") String name, @Param("owner") String owner, @Param("now") long now);
+}
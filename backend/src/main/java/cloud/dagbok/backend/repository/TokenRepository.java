@@ -2,12 +2,20 @@ package cloud.dagbok.backend.repository;
 
 import cloud.dagbok.backend.entity.TokenEntity;
 import cloud.dagbok.backend.entity.UserEntity;
+import java.util.Collection;
 import java.util.Optional;
 import java.util.UUID;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 public interface TokenRepository extends JpaRepository<TokenEntity, UUID> {
-  Optional<TokenEntity> findByToken(String token);
+  Optional<TokenEntity> findByTokenId(String tokenId);
 
   Optional<TokenEntity> findByUser(UserEntity user);
+
+  @Modifying
+  @Query("DELETE FROM TokenEntity t WHERE t.user.id IN :userIds")
+  void deleteByUserIdIn(@Param("userIds") Collection<UUID> userIds);
 }
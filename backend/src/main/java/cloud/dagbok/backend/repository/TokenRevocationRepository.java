@@ -0,0 +1,24 @@
+package cloud.dagbok.backend.repository;
+
+import cloud.dagbok.backend.entity.TokenRevocationEntity;
+import java.util.List;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface TokenRevocationRepository extends JpaRepository<TokenRevocationEntity, Long> {
+
+  @Query(
+"""
+    SELECT r
+    FROM TokenRevocationEntity r
+    WHERE r.revokedAt >= :since
+      AND r.expiresAt > :now
+""")
+  List<TokenRevocationEntity> findRevokedSince(@Param("since") long since, @Param("now") long now);
+
+  @Modifying
+  @Query("DELETE FROM TokenRevocationEntity r WHERE r.expiresAt <= :now")
+  int deleteExpired(@Param("now") long now);
+}
@@ -3,15 +3,72 @@ package cloud.dagbok.backend.repository;
 import cloud.dagbok.backend.entity.Role;
 import cloud.dagbok.backend.entity.UserEntity;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 public interface UserRepository extends JpaRepository<UserEntity, UUID> {
   boolean existsByUsername(String username);
 
   Optional<UserEntity> findByUsername(String username);
 
-  List<UserEntity> findByRoleAndCreatedAtBefore(Role role, LocalDateTime before);
+  /** Oldest first, on the {@code (role, created_at)} index. */
+  @Query(
+"""
+    SELECT u.id
+    FROM UserEntity u
+    WHERE u.role = :role
+      AND u.createdAt < :before
+    ORDER BY u.createdAt
+""")
+  List<UUID> findIdsByRoleAndCreatedAtBefore(
+      @Param("role") Role role, @Param("before") LocalDateTime before, Pageable pageable);
+
+  @Query("SELECT u.role FROM UserEntity u WHERE u.id = :id")
+  Optional<Role> findRoleById(@Param("id") UUID id);
+
+  @Query("SELECT u.dataVersion FROM UserEntity u WHERE u.id = :id")
+  Optional<Long> findDataVersionById(@Param("id") UUID id);
+
+  @Modifying
+  @Query("UPDATE UserEntity u SET u.dataVersion = u.dataVersion + 1 WHERE u.id = :id")
+  void bumpDataVersion(@Param("id") UUID id);
+
+  @Query(
+"""
+    SELECT u.id
+    FROM UserEntity u
+    WHERE u.dayCountsBackfilled = false
+      AND u.id > :after
+    ORDER BY u.id
+""")
+  List<UUID> findIdsWithoutDayCountsAfter(@Param("after") UUID after, Pageable pageable);
+
+  @Modifying
+  @Query("UPDATE UserEntity u SET u.dayCountsBackfilled = true WHERE u.id = :id")
+  void markDayCountsBackfilled(@Param("id") UUID id);
+
+  @Modifying
+  @Query("UPDATE UserEntity u SET u.totalCostUSD = u.totalCostUSD + :cost WHERE u.id = :id")
+  void addToTotalCost(@Param("id") UUID id, @Param("cost") double cost);
+
+  @Modifying
+  @Query(
+"""
+    UPDATE UserEntity u
+    SET u.monthlyCost = COALESCE((SELECT c.spentUsd FROM CostLedgerEntity c
+                                  WHERE c.userId = u.id AND c.period = :period), 0)
+    WHERE u.id = :id
+""")
+  void syncMonthlyCost(@Param("id") UUID id, @Param("period") String period);
+
+  @Modifying
+  @Query("DELETE FROM UserEntity u WHERE u.id IN :ids AND u.role = :role")
+  int deleteByIdInAndRole(@Param("ids") Collection<UUID> ids, @Param("role") Role role);
 }
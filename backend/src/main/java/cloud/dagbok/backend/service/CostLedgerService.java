@@ -0,0 +1,159 @@
+package cloud.dagbok.backend.service;
+
+import cloud.dagbok.backend.entity.CostLedgerEntity;
+import cloud.dagbok.backend.exceptionHandler.MonthlyCostLimitExceededException;
+import cloud.dagbok.backend.repository.CostLedgerRepository;
+import cloud.dagbok.backend.repository.NoteRepository;
+import cloud.dagbok.backend.repository.UserRepository;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Enforces the monthly AI budget with a reserve → call → settle flow on the {@code cost_ledger}
+ * table. Reservation is a single conditional UPDATE on the user's row for the month, so concurrent
+ * requests cannot together push spent + reserved past the limit.
+ *
+ * <p>A reservation that is never settled or released, because the node died mid-call, would hold
+ * its budget forever. Every node therefore releases, at startup and then every minute, whatever is
+ * still reserved on rows whose latest reservation is older than {@code
+ * notes.ai.reservation-ttl-minutes}, which must exceed the longest call.
+ */
+@Service
+public class CostLedgerService {
+  private final CostLedgerRepository costLedgerRepository;
+  private final NoteRepository noteRepository;
+  private final UserRepository userRepository;
+  private final TransactionTemplate newTransaction;
+  private final Duration reservationTtl;
+  private static final Logger logger = LoggerFactory.getLogger(CostLedgerService.class);
+
+  public CostLedgerService(
+      CostLedgerRepository costLedgerRepository,
+      NoteRepository noteRepository,
+      UserRepository userRepository,
+      PlatformTransactionManager transactionManager,
+      @Value("${notes.ai.reservation-ttl-minutes:10}") long reservationTtlMinutes) {
+    this.costLedgerRepository = costLedgerRepository;
+    this.noteRepository = noteRepository;
+    this.userRepository = userRepository;
+    this.newTransaction = new TransactionTemplate(transactionManager);
+    this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    this.reservationTtl = Duration.ofMinutes(reservationTtlMinutes);
+  }
+
+  /**
+   * Reserves {@code estimatedCost} against this month's budget.
+   *
+   * @throws MonthlyCostLimitExceededException if the reservation would exceed the limit
+   */
+  public Reservation reserve(UUID userId, double estimatedCost) {
+    String period = YearMonth.now().toString();
+    if (tryReserve(userId, period, estimatedCost)) {
+      return new Reservation(userId, period, estimatedCost);
+    }
+
+    CostLedgerEntity ledger =
+        costLedgerRepository.findByUserIdAndPeriod(userId, period).orElse(null);
+    if (ledger == null) {
+      createLedger(userId, period);
+      if (tryReserve(userId, period, estimatedCost)) {
+        return new Reservation(userId, period, estimatedCost);
+      }
+      ledger = costLedgerRepository.findByUserIdAndPeriod(userId, period).orElseThrow();
+    }
+    throw new MonthlyCostLimitExceededException(ledger.getSpentUsd());
+  }
+
+  /** Replaces the reservation with what the call actually cost. */
+  public void settle(Reservation reservation, double actualCost) {
+    newTransaction.executeWithoutResult(
+        status -> {
+          costLedgerRepository.settle(
+              reservation.userId(), reservation.period(), reservation.amount(), actualCost);
+          if (actualCost > 0) {
+            userRepository.addToTotalCost(reservation.userId(), actualCost);
+            userRepository.syncMonthlyCost(reservation.userId(), reservation.period());
+            userRepository.bumpDataVersion(reservation.userId());
+          }
+        });
+  }
+
+  /** Gives the reserved amount back after a failed call. */
+  public void release(Reservation reservation) {
+    newTransaction.executeWithoutResult(
+        status ->
+            costLedgerRepository.settle(
+                reservation.userId(), reservation.period(), reservation.amount(), 0.0));
+  }
+
+  /** Releases reservations left behind by calls that never settled, e.g. on a node that died. */
+  @Scheduled(fixedDelay = 1, timeUnit = TimeUnit.MINUTES)
+  public void releaseStale() {
+    Integer released =
+        newTransaction.execute(
+            status ->
+                costLedgerRepository.releaseReservedBefore(
+                    LocalDateTime.now().minus(reservationTtl)));
+    if (released != null && released > 0) {
+      logger.warn("Released stale cost reservations on {} ledger rows", released);
+    }
+  }
+
+  public double monthlyCost(UUID userId) {
+    return costLedgerRepository
+        .findByUserIdAndPeriod(userId, YearMonth.now().toString())
+        .map(CostLedgerEntity::getSpentUsd)
+        .orElse(0.0);
+  }
+
+  private boolean tryReserve(UUID userId, String period, double amount) {
+    Integer updated =
+        newTransaction.execute(
+            status ->
+                costLedgerRepository.reserve(
+                    userId,
+                    period,
+                    amount,
+                    MonthlyCostLimitExceededException.LIMIT,
+                    LocalDateTime.now()));
+    return updated != null && updated > 0;
+  }
+
+  /**
+   * Opens the month's ledger row, seeded from notes already created this month so the budget
+   * carries over from before the ledger existed. Losing the insert race to a concurrent request is
+   * fine; its row is just as good.
+   */
+  private void createLedger(UUID userId, String period) {
+    YearMonth month = YearMonth.parse(period);
+    try {
+      newTransaction.executeWithoutResult(
+          status -> {
+            Double spent =
+                noteRepository.getTotalCostUSDByUserIdBetween(
+                    userId,
+                    month.atDay(1).atStartOfDay(),
+                    month.plusMonths(1).atDay(1).atStartOfDay());
+            costLedgerRepository.saveAndFlush(
+                new CostLedgerEntity(userId, period, spent != null ? spent : 0.0));
+            userRepository.syncMonthlyCost(userId, period);
+          });
+    } catch (DataIntegrityViolationException e) {
+      // Created concurrently
+    }
+  }
+
+  public record Reservation(UUID userId, String period, double amount) {}
+}
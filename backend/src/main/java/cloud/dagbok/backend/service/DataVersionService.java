@@ -0,0 +1,42 @@
+package cloud.dagbok.backend.service;
+
+import cloud.dagbok.backend.repository.UserRepository;
+import java.util.UUID;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Per-user data version behind the ETags of note and profile reads. Every write to a user's notes
+ * or profile bumps it, so a read whose ETag still matches can answer 304 after one primary-key
+ * lookup on {@code users}, without querying the notes.
+ */
+@Service
+public class DataVersionService {
+  private final UserRepository userRepository;
+
+  public DataVersionService(UserRepository userRepository) {
+    this.userRepository = userRepository;
+  }
+
+  @Transactional
+  public void bump(UUID userId) {
+    userRepository.bumpDataVersion(userId);
+  }
+
+  /**
+   * Weak ETag for a read of the user's data. It includes the user id, so one browser switching
+   * between accounts never revalidates one user's cached response against another's version.
+   */
+  public String eTag(UUID userId) {
+    return eTag(userId, null);
+  }
+
+  /**
+   * Same as {@link #eTag(UUID)}, for responses that also depend on something other than the user's
+   * data, such as the current month.
+   */
+  public String eTag(UUID userId, String scope) {
+    long version = userRepository.findDataVersionById(userId).orElse(0L);
+    return "W/\"" + userId + "-" + version + (scope != null ? "-" + scope : "") + "\"";
+  }
+}
@@ -0,0 +1,132 @@
+package cloud.dagbok.backend.service;
+
+import cloud.dagbok.backend.entity.Role;
+import cloud.dagbok.backend.repository.CostLedgerRepository;
+import cloud.dagbok.backend.repository.NoteDayCountRepository;
+import cloud.dagbok.backend.repository.NoteRepository;
+import cloud.dagbok.backend.repository.NoteTermRepository;
+import cloud.dagbok.backend.repository.TokenRepository;
+import cloud.dagbok.backend.repository.UserRepository;
+import cloud.dagbok.backend.utils.TimingWheel;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Deletes demo accounts once their {@code demo.ttl-minutes} are up. Each account is put on an
+ * in-memory timing wheel when it is created, so it is removed within a second or two of expiring.
+ * Accounts the wheel does not know about (created before a restart, or on a node that went away)
+ * are picked up by a periodic sweep, which only one node in a cluster runs at a time.
+ *
+ * <p>Both paths delete in batches with bulk statements, children first, instead of loading and
+ * cascading each user.
+ */
+@Service
+public class DemoUserExpiryService {
+  private static final int BATCH_SIZE = 500;
+  private static final String SWEEP_LOCK = "demo-user-sweep";
+  private static final Duration SWEEP_LOCK_HOLD = Duration.ofSeconds(50);
+
+  private final UserRepository userRepository;
+  private final TokenRepository tokenRepository;
+  private final NoteRepository noteRepository;
+  private final NoteTermRepository noteTermRepository;
+  private final NoteDayCountRepository noteDayCountRepository;
+  private final CostLedgerRepository costLedgerRepository;
+  private final UserStatusCache userStatusCache;
+  private final LeaderLockService leaderLockService;
+  private final TransactionTemplate transactionTemplate;
+  private final Duration ttl;
+  private final TimingWheel<UUID> wheel =
+      new TimingWheel<>(1000, 60, 3, System.currentTimeMillis());
+  private static final Logger logger = LoggerFactory.getLogger(DemoUserExpiryService.class);
+
+  public DemoUserExpiryService(
+      UserRepository userRepository,
+      TokenRepository tokenRepository,
+      NoteRepository noteRepository,
+      NoteTermRepository noteTermRepository,
+      NoteDayCountRepository noteDayCountRepository,
+      CostLedgerRepository costLedgerRepository,
+      UserStatusCache userStatusCache,
+      LeaderLockService leaderLockService,
+      PlatformTransactionManager transactionManager,
+      @Value("${demo.ttl-minutes:5}") long ttlMinutes) {
+    this.userRepository = userRepository;
+    this.tokenRepository = tokenRepository;
+    this.noteRepository = noteRepository;
+    this.noteTermRepository = noteTermRepository;
+    this.noteDayCountRepository = noteDayCountRepository;
+    this.costLedgerRepository = costLedgerRepository;
+    this.userStatusCache = userStatusCache;
+    this.leaderLockService = leaderLockService;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.ttl = Duration.ofMinutes(ttlMinutes);
+  }
+
+  public Duration ttl() {
+    return ttl;
+  }
+
+  /** Schedules a just-created demo account for deletion when its TTL runs out. */
+  public void schedule(UUID userId) {
+    wheel.schedule(userId, System.currentTimeMillis() + ttl.toMillis());
+  }
+
+  @Scheduled(fixedRate = 1000)
+  public void expireDue() {
+    List<UUID> expired = wheel.advance(System.currentTimeMillis());
+    for (int from = 0; from < expired.size(); from += BATCH_SIZE) {
+      delete(expired.subList(from, Math.min(from + BATCH_SIZE, expired.size())));
+    }
+  }
+
+  @Scheduled(cron = "${demo.sweep.cron:30 * * * * *}")
+  public void sweep() {
+    if (!leaderLockService.tryAcquire(SWEEP_LOCK, SWEEP_LOCK_HOLD)) {
+      return;
+    }
+    try {
+      LocalDateTime cutoff = LocalDateTime.now().minus(ttl);
+      int deleted = 0;
+      List<UUID> batch;
+      do {
+        batch =
+            userRepository.findIdsByRoleAndCreatedAtBefore(
+                Role.DEMO, cutoff, PageRequest.ofSize(BATCH_SIZE));
+        if (!batch.isEmpty()) {
+          delete(batch);
+          deleted += batch.size();
+        }
+      } while (batch.size() == BATCH_SIZE);
+
+      if (deleted > 0) {
+        logger.info("Demo user sweep removed {} expired accounts", deleted);
+      }
+    } finally {
+      leaderLockService.release(SWEEP_LOCK);
+    }
+  }
+
+  private void delete(List<UUID> userIds) {
+    transactionTemplate.executeWithoutResult(
+        status -> {
+          noteTermRepository.deleteByUserIdIn(userIds);
+          noteDayCountRepository.deleteByUserIdIn(userIds);
+          costLedgerRepository.deleteByUserIdIn(userIds);
+          noteRepository.deleteByUserIdIn(userIds);
+          tokenRepository.deleteByUserIdIn(userIds);
+          userRepository.deleteByIdInAndRole(userIds, Role.DEMO);
+        });
+    userStatusCache.evictAll(userIds);
+  }
+}
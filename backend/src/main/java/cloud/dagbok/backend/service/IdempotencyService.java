@@ -0,0 +1,84 @@
+package cloud.dagbok.backend.service;
+
+import cloud.dagbok.backend.exceptionHandler.ConflictException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Short-lived store behind the {@code Idempotency-Key} header. The first request with a key runs;
+ * repeats of it (a double click, a client retry) wait for that run and get its result instead of
+ * running again. A failed run is forgotten so the request can be retried with the same key.
+ */
+@Service
+public class IdempotencyService {
+  private static final int MAX_KEY_LENGTH = 255;
+
+  private final Cache<String, Entry> entries;
+
+  public IdempotencyService(
+      @Value("${notes.idempotency.ttl-minutes:10}") long ttlMinutes,
+      @Value("${notes.idempotency.max-size:10000}") long maxSize,
+      MeterRegistry meterRegistry) {
+    this.entries =
+        Caffeine.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+            .recordStats()
+            .build();
+    CaffeineCacheMetrics.monitor(meterRegistry, entries, "notes.idempotency");
+  }
+
+  /**
+   * Runs {@code action} unless this user already sent {@code key}, in which case the earlier
+   * result is returned.
+   *
+   * @throws ConflictException if the key was already used with a different {@code request}
+   */
+  @SuppressWarnings("unchecked")
+  public <T> Outcome<T> execute(UUID userId, String key, Object request, Supplier<T> action) {
+    if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+      throw new IllegalArgumentException(
+          "Idempotency-Key must be between 1 and " + MAX_KEY_LENGTH + " characters");
+    }
+    String cacheKey = userId + ":" + key;
+    Entry created = new Entry(request, new CompletableFuture<>());
+    Entry existing = entries.asMap().putIfAbsent(cacheKey, created);
+
+    if (existing != null) {
+      if (!existing.request().equals(request)) {
+        throw new ConflictException("Idempotency-Key was already used for a different request");
+      }
+      try {
+        return new Outcome<>((T) existing.result().join(), true);
+      } catch (CompletionException e) {
+        if (e.getCause() instanceof RuntimeException cause) {
+          throw cause;
+        }
+        throw e;
+      }
+    }
+
+    try {
+      T value = action.get();
+      created.result().complete(value);
+      return new Outcome<>(value, false);
+    } catch (RuntimeException e) {
+      entries.asMap().remove(cacheKey, created);
+      created.result().completeExceptionally(e);
+      throw e;
+    }
+  }
+
+  public record Outcome<T>(T value, boolean replayed) {}
+
+  private record Entry(Object request, CompletableFuture<Object> result) {}
+}
@@ -0,0 +1,74 @@
+package cloud.dagbok.backend.service;
+
+import cloud.dagbok.backend.entity.SchedulerLockEntity;
+import cloud.dagbok.backend.repository.SchedulerLockRepository;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.UUID;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Leases on the {@code scheduler_locks} table, used by scheduled jobs that must run on one node
+ * only. A lease is held until it is released or {@code hold} runs out, so a node that dies while
+ * holding it only blocks the job until then.
+ */
+@Service
+public class LeaderLockService {
+  private final SchedulerLockRepository schedulerLockRepository;
+  private final TransactionTemplate newTransaction;
+  private final String owner;
+
+  public LeaderLockService(
+      SchedulerLockRepository schedulerLockRepository,
+      PlatformTransactionManager transactionManager) {
+    this.schedulerLockRepository = schedulerLockRepository;
+    this.newTransaction = new TransactionTemplate(transactionManager);
+    this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    this.owner = hostName() + "/" + UUID.randomUUID().toString().substring(0, 8);
+  }
+
+  /** Returns true if this node now holds {@code name} for up to {@code hold}. */
+  public boolean tryAcquire(String name, Duration hold) {
+    long now = System.currentTimeMillis();
+    if (tryLock(name, now, now + hold.toMillis())) {
+      return true;
+    }
+    if (schedulerLockRepository.existsById(name)) {
+      return false;
+    }
+    try {
+      newTransaction.executeWithoutResult(
+          status ->
+              schedulerLockRepository.saveAndFlush(
+                  new SchedulerLockEntity(name, now + hold.toMillis(), owner)));
+      return true;
+    } catch (DataIntegrityViolationException e) {
+      // Another node created the lock first and holds it
+      return false;
+    }
+  }
+
+  public void release(String name) {
+    newTransaction.executeWithoutResult(
+        status -> schedulerLockRepository.unlock(name, owner, System.currentTimeMillis()));
+  }
+
+  private boolean tryLock(String name, long now, long until) {
+    Integer updated =
+        newTransaction.execute(status -> schedulerLockRepository.tryLock(name, owner, now, until));
+    return updated != null && updated > 0;
+  }
+
+  private static String hostName() {
+    try {
+      return InetAddress.getLocalHost().getHostName();
+    } catch (UnknownHostException e) {
+      return "unknown";
+    }
+  }
+}
@@ -0,0 +1,94 @@
+package cloud.dagbok.backend.service;
+
+import cloud.dagbok.backend.entity.NoteEntity;
+import cloud.dagbok.backend.entity.NoteTextConverter;
+import cloud.dagbok.backend.repository.NoteRepository;
+import java.util.List;
+import java.util.UUID;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Re-encodes notes written before {@code notes.compression.enabled} was switched on, so their
+ * stored text gets the compressed format as well. New and edited notes get it from {@link
+ * NoteTextConverter} directly; this only catches up on the rest.
+ */
+@Service
+public class NoteCompressionService {
+  private static final int BATCH_SIZE = 200;
+
+  private final NoteRepository noteRepository;
+  private final NoteTextConverter converter;
+  private final TransactionTemplate transactionTemplate;
+  private static final Logger logger = LoggerFactory.getLogger(NoteCompressionService.class);
+
+  public NoteCompressionService(
+      NoteRepository noteRepository,
+      NoteTextConverter converter,
+      PlatformTransactionManager transactionManager) {
+    this.noteRepository = noteRepository;
+    this.converter = converter;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void reencodeInBackground() {
+    if (!converter.enabled()) {
+      return;
+    }
+    Thread.ofVirtual().name("note-compression").start(this::reencode);
+  }
+
+  /**
+   * One pass over the notes in id order. Each batch locks its rows, so a note edited meanwhile is
+   * either re-encoded after the edit or written by it in the new format, never overwritten. Notes
+   * already stored compressed are not selected, so a pass after a finished one rewrites nothing.
+   *
+   * @return the number of notes rewritten in the compressed format
+   */
+  public int reencode() {
+    UUID after = new UUID(0, 0);
+    int compressed = 0;
+    List<UUID> ids;
+    do {
+      ids =
+          noteRepository.findUncompressedIdsAfter(
+              after,
+              converter.minLength(),
+              String.valueOf(NoteTextConverter.COMPRESSED),
+              PageRequest.ofSize(BATCH_SIZE));
+      if (!ids.isEmpty()) {
+        compressed += reencode(ids);
+        after = ids.getLast();
+      }
+    } while (ids.size() == BATCH_SIZE);
+
+    if (compressed > 0) {
+      logger.info("Compressed the stored text of {} notes", compressed);
+    }
+    return compressed;
+  }
+
+  private int reencode(List<UUID> ids) {
+    Integer count =
+        transactionTemplate.execute(
+            status -> {
+              int rewritten = 0;
+              for (NoteEntity note : noteRepository.findAllForUpdate(ids)) {
+                String stored = converter.convertToDatabaseColumn(note.getText());
+                // Texts that do not get shorter stay as they are
+                if (stored != null && stored.charAt(0) == NoteTextConverter.COMPRESSED) {
+                  rewritten += noteRepository.rewriteText(note.getId(), note.getText());
+                }
+              }
+              return rewritten;
+            });
+    return count != null ? count : 0;
+  }
+}
@@ -0,0 +1,130 @@
+package cloud.dagbok.backend.service;
+
+import cloud.dagbok.backend.dto.note.NotesCountByDate;
+import cloud.dagbok.backend.entity.NoteDayCountEntity;
+import cloud.dagbok.backend.repository.NoteDayCountRepository;
+import cloud.dagbok.backend.repository.NoteRepository;
+import cloud.dagbok.backend.repository.UserRepository;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Maintains the {@code note_day_counts} table so the calendar's month view is a small indexed
+ * read instead of a GROUP BY over the notes table. The table is always kept in sync; {@code
+ * notes.day-counts.enabled} only decides whether reads use it or the range query on notes.
+ *
+ * <p>Counts are written in the transaction that writes the notes, after {@link
+ * DataVersionService#bump} in that same transaction. The bump locks the user row, so writes to one
+ * user's counts never race: the first note of a day can insert its row without a duplicate-key
+ * retry, and {@link #backfill} can rebuild a user's counts without losing concurrent changes.
+ */
+@Service
+public class NoteDayCountService {
+  private static final int BACKFILL_BATCH_SIZE = 500;
+
+  private final NoteDayCountRepository noteDayCountRepository;
+  private final NoteRepository noteRepository;
+  private final UserRepository userRepository;
+  private final DataVersionService dataVersionService;
+  private final TransactionTemplate transaction;
+  private static final Logger logger = LoggerFactory.getLogger(NoteDayCountService.class);
+
+  @Value("${notes.day-counts.enabled:true}")
+  private boolean enabled;
+
+  public NoteDayCountService(
+      NoteDayCountRepository noteDayCountRepository,
+      NoteRepository noteRepository,
+      UserRepository userRepository,
+      DataVersionService dataVersionService,
+      PlatformTransactionManager transactionManager) {
+    this.noteDayCountRepository = noteDayCountRepository;
+    this.noteRepository = noteRepository;
+    this.userRepository = userRepository;
+    this.dataVersionService = dataVersionService;
+    this.transaction = new TransactionTemplate(transactionManager);
+  }
+
+  @Transactional(propagation = Propagation.MANDATORY)
+  public void increment(UUID userId, LocalDate date) {
+    add(userId, date, 1);
+  }
+
+  /**
+   * Adds {@code notes} to the user's count for {@code date}, creating the row on the first note of
+   * the day.
+   */
+  @Transactional(propagation = Propagation.MANDATORY)
+  public void add(UUID userId, LocalDate date, long notes) {
+    if (noteDayCountRepository.adjustCount(userId, date, notes) == 0) {
+      noteDayCountRepository.save(new NoteDayCountEntity(userId, date, notes));
+    }
+  }
+
+  @Transactional(propagation = Propagation.MANDATORY)
+  public void decrement(UUID userId, LocalDate date) {
+    noteDayCountRepository.adjustCount(userId, date, -1);
+  }
+
+  @Transactional(readOnly = true)
+  public List<NotesCountByDate> countsForMonth(UUID userId, int year, int month) {
+    LocalDate from = LocalDate.of(year, month, 1);
+    LocalDate to = from.plusMonths(1);
+    if (enabled) {
+      return noteDayCountRepository.findCounts(userId, from, to);
+    }
+    return noteRepository.countNotesByDate(userId, from, to);
+  }
+
+  /**
+   * Rebuilds the counts of every user not yet marked complete, one user per transaction, in id
+   * order so an interrupted run resumes where it stopped on the next start.
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  public void backfill() {
+    UUID after = new UUID(0, 0);
+    int users = 0;
+    List<UUID> batch;
+    do {
+      batch =
+          userRepository.findIdsWithoutDayCountsAfter(
+              after, PageRequest.ofSize(BACKFILL_BATCH_SIZE));
+      for (UUID userId : batch) {
+        transaction.executeWithoutResult(status -> rebuild(userId));
+        after = userId;
+      }
+      users += batch.size();
+    } while (batch.size() == BACKFILL_BATCH_SIZE);
+
+    if (users > 0) {
+      logger.info("Backfilled note day counts of {} users", users);
+    }
+  }
+
+  /**
+   * Replaces the user's counts with ones counted from their notes. The bump comes first: once it
+   * holds the user row, note writes for the user wait, and the count sees every one committed
+   * before.
+   */
+  private void rebuild(UUID userId) {
+    dataVersionService.bump(userId);
+    noteDayCountRepository.deleteByUserIdIn(List.of(userId));
+    noteDayCountRepository.saveAll(
+        noteRepository.countAllNotesByDate(userId).stream()
+            .map(row -> new NoteDayCountEntity(userId, row.date(), row.count()))
+            .toList());
+    userRepository.markDayCountsBackfilled(userId);
+  }
+}
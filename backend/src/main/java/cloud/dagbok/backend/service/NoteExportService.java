@@ -0,0 +1,150 @@
+package cloud.dagbok.backend.service;
+
+import cloud.dagbok.backend.dto.note.NoteExportItem;
+import cloud.dagbok.backend.entity.NoteEntity;
+import cloud.dagbok.backend.exceptionHandler.ExportBusyException;
+import jakarta.persistence.EntityManager;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.UUID;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.jdbc.DatabaseDriver;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import tools.jackson.core.JacksonException;
+import tools.jackson.core.StreamWriteFeature;
+import tools.jackson.databind.SequenceWriter;
+import tools.jackson.databind.json.JsonMapper;
+
+/**
+ * Writes a user's notes straight from a database cursor to the response. Each note is detached as
+ * soon as it has been written, so the persistence context, and with it memory use, stays the same
+ * size however many notes there are.
+ *
+ * <p>On MySQL the export query alone streams rows (fetch size {@link Integer#MIN_VALUE}), so the
+ * rest of the application keeps Connector/J's default of buffering small result sets. An export
+ * holds its pooled connection until the download finishes, so at most {@code
+ * notes.export.max-concurrent} run at once and the rest are turned away with a 503 before taking a
+ * connection.
+ */
+@Service
+public class NoteExportService {
+  private static final String EXPORT_QUERY =
+      """
+      SELECT n
+      FROM NoteEntity n
+      WHERE n.user.id = :userId
+        AND n.deletedAt IS NULL
+      ORDER BY n.date ASC, n.createdAt ASC, n.id ASC
+      """;
+
+  private final EntityManager entityManager;
+  private final JsonMapper jsonMapper;
+  private final int fetchSize;
+  private final Semaphore exports;
+
+  public NoteExportService(
+      EntityManager entityManager,
+      JsonMapper jsonMapper,
+      @Value("${spring.datasource.url}") String datasourceUrl,
+      @Value("${notes.export.max-concurrent:4}") int maxConcurrent) {
+    this.entityManager = entityManager;
+    this.jsonMapper = jsonMapper;
+    this.fetchSize =
+        DatabaseDriver.fromJdbcUrl(datasourceUrl) == DatabaseDriver.MYSQL ? Integer.MIN_VALUE : 500;
+    this.exports = new Semaphore(maxConcurrent);
+  }
+
+  /**
+   * Takes an export slot, to be closed once the export has been written. Call it before anything is
+   * written to the response, so a refusal can still be answered with an error.
+   *
+   * @throws ExportBusyException if every slot is taken
+   */
+  public Slot acquireSlot() {
+    if (!exports.tryAcquire()) {
+      throw new ExportBusyException("Too many exports in progress, try again shortly");
+    }
+    return exports::release;
+  }
+
+  /** One JSON object per line; the format {@code POST /api/notes/import} reads back. */
+  @Transactional(readOnly = true)
+  public int exportNdjson(UUID userId, OutputStream out) throws IOException {
+    int exported = 0;
+    // The caller owns the response stream, so closing the writer must leave it open
+    try (Stream<NoteEntity> notes = streamNotes(userId);
+        SequenceWriter writer =
+            jsonMapper
+                .writer()
+                .without(StreamWriteFeature.AUTO_CLOSE_TARGET)
+                .withRootValueSeparator("\n")
+                .writeValues(out)) {
+      for (NoteEntity note : (Iterable<NoteEntity>) notes::iterator) {
+        writer.write(
+            new NoteExportItem(note.getId(), note.getDate(), note.getCreatedAt(), note.getText()));
+        entityManager.detach(note);
+        exported++;
+      }
+    } catch (JacksonException e) {
+      throw new IOException("Failed to write export", e);
+    }
+    if (exported > 0) {
+      out.write('\n');
+    }
+    return exported;
+  }
+
+  /** A zip with one Markdown file per day, {@code yyyy/yyyy-MM-dd.md}, notes separated by rules. */
+  @Transactional(readOnly = true)
+  public int exportMarkdownZip(UUID userId, OutputStream out) throws IOException {
+    int exported = 0;
+    ZipOutputStream zip = new ZipOutputStream(out, StandardCharsets.UTF_8);
+    try (Stream<NoteEntity> notes = streamNotes(userId)) {
+      LocalDate currentDay = null;
+      for (NoteEntity note : (Iterable<NoteEntity>) notes::iterator) {
+        if (!note.getDate().equals(currentDay)) {
+          if (currentDay != null) {
+            zip.closeEntry();
+          }
+          currentDay = note.getDate();
+          zip.putNextEntry(new ZipEntry(currentDay.getYear() + "/" + currentDay + ".md"));
+          zip.write(("# " + currentDay + "\n\n").getBytes(StandardCharsets.UTF_8));
+        } else {
+          zip.write("\n\n---\n\n".getBytes(StandardCharsets.UTF_8));
+        }
+        zip.write(note.getText().getBytes(StandardCharsets.UTF_8));
+        entityManager.detach(note);
+        exported++;
+      }
+      if (currentDay != null) {
+        zip.closeEntry();
+      }
+    }
+    zip.finish();
+    return exported;
+  }
+
+  private Stream<NoteEntity> streamNotes(UUID userId) {
+    return entityManager
+        .createQuery(EXPORT_QUERY, NoteEntity.class)
+        .setParameter("userId", userId)
+        .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+        .setHint(HibernateHints.HINT_READ_ONLY, true)
+        .getResultStream();
+  }
+
+  /** An export slot; closing it gives the slot back. */
+  @FunctionalInterface
+  public interface Slot extends AutoCloseable {
+    @Override
+    void close();
+  }
+}
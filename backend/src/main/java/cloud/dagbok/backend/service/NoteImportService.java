@@ -0,0 +1,181 @@
+package cloud.dagbok.backend.service;
+
+import cloud.dagbok.backend.dto.note.NoteImportItem;
+import cloud.dagbok.backend.dto.note.NoteImportResponse;
+import cloud.dagbok.backend.entity.NoteEntity;
+import cloud.dagbok.backend.entity.NoteTermEntity;
+import cloud.dagbok.backend.entity.UserEntity;
+import cloud.dagbok.backend.repository.NoteRepository;
+import cloud.dagbok.backend.repository.NoteTermRepository;
+import cloud.dagbok.backend.repository.UserRepository;
+import cloud.dagbok.backend.utils.SearchTokenizer;
+import jakarta.persistence.EntityManager;
+import java.io.InputStream;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tools.jackson.core.JacksonException;
+import tools.jackson.core.TokenStreamLocation;
+import tools.jackson.databind.DatabindException;
+import tools.jackson.databind.MappingIterator;
+import tools.jackson.databind.json.JsonMapper;
+
+/**
+ * Imports notes in bulk from NDJSON or a JSON array of {@code {"text": ..., "date": ...}} objects.
+ * The body is read one note at a time and written in batches of {@code notes.import.batch-size},
+ * each in its own transaction that is flushed and cleared before the next, so memory use does not
+ * depend on the size of the import. Search terms, per-day counts and the data version are updated
+ * in each batch's transaction, so the notes of a failed import that were already committed are
+ * fully accounted for.
+ *
+ * <p>Imported text is stored as-is, without AI generation or the signature added to new notes.
+ */
+@Service
+public class NoteImportService {
+  private static final int MAX_TEXT_LENGTH = 5000;
+
+  private final NoteRepository noteRepository;
+  private final NoteTermRepository noteTermRepository;
+  private final UserRepository userRepository;
+  private final NoteDayCountService noteDayCountService;
+  private final DataVersionService dataVersionService;
+  private final EntityManager entityManager;
+  private final TransactionTemplate transaction;
+  private final JsonMapper jsonMapper;
+  private static final Logger logger = LoggerFactory.getLogger(NoteImportService.class);
+
+  @Value("${notes.import.batch-size:500}")
+  private int batchSize;
+
+  @Value("${notes.import.max-notes:100000}")
+  private int maxNotes;
+
+  public NoteImportService(
+      NoteRepository noteRepository,
+      NoteTermRepository noteTermRepository,
+      UserRepository userRepository,
+      NoteDayCountService noteDayCountService,
+      DataVersionService dataVersionService,
+      EntityManager entityManager,
+      PlatformTransactionManager transactionManager,
+      JsonMapper jsonMapper) {
+    this.noteRepository = noteRepository;
+    this.noteTermRepository = noteTermRepository;
+    this.userRepository = userRepository;
+    this.noteDayCountService = noteDayCountService;
+    this.dataVersionService = dataVersionService;
+    this.entityManager = entityManager;
+    this.transaction = new TransactionTemplate(transactionManager);
+    this.jsonMapper = jsonMapper;
+  }
+
+  /**
+   * Imports every valid note in {@code body}. Notes without text or date, with text over 5000
+   * characters, or with values of the wrong type or format (such as an invalid date) are skipped
+   * and counted. Batches written before a malformed line are kept.
+   *
+   * @throws IllegalArgumentException if the body is not valid JSON or exceeds {@code
+   *     notes.import.max-notes}
+   */
+  public NoteImportResponse importNotes(UUID userId, InputStream body) {
+    int imported = 0;
+    int skipped = 0;
+    List<NoteImportItem> batch = new ArrayList<>(batchSize);
+
+    try (MappingIterator<NoteImportItem> items =
+        jsonMapper.readerFor(NoteImportItem.class).readValues(body)) {
+      while (items.hasNextValue()) {
+        NoteImportItem item;
+        try {
+          item = items.nextValue();
+        } catch (DatabindException e) {
+          // Well-formed JSON that does not map to a note, such as an invalid date. The iterator
+          // resyncs past it on the next hasNextValue()
+          skipped++;
+          continue;
+        }
+        if (!isValid(item)) {
+          skipped++;
+          continue;
+        }
+        if (imported + batch.size() >= maxNotes) {
+          throw new IllegalArgumentException(
+              "Import exceeds the maximum of " + maxNotes + " notes");
+        }
+        batch.add(item);
+        if (batch.size() == batchSize) {
+          imported += writeBatch(userId, batch);
+          batch.clear();
+        }
+      }
+      imported += writeBatch(userId, batch);
+    } catch (JacksonException e) {
+      TokenStreamLocation location = e.getLocation();
+      throw new IllegalArgumentException(
+          "Malformed import"
+              + (location != null ? " at line " + location.getLineNr() : "")
+              + " after "
+              + imported
+              + " imported notes: "
+              + e.getOriginalMessage());
+    }
+
+    logger.info("Imported {} notes for user {}, skipped {}", imported, userId, skipped);
+    return new NoteImportResponse(imported, skipped);
+  }
+
+  private static boolean isValid(NoteImportItem item) {
+    return item != null
+        && item.date() != null
+        && item.text() != null
+        && !item.text().isBlank()
+        && item.text().length() <= MAX_TEXT_LENGTH;
+  }
+
+  private int writeBatch(UUID userId, List<NoteImportItem> batch) {
+    if (batch.isEmpty()) {
+      return 0;
+    }
+    transaction.executeWithoutResult(
+        status -> {
+          dataVersionService.bump(userId);
+          UserEntity user = userRepository.getReferenceById(userId);
+          List<NoteEntity> notes = new ArrayList<>(batch.size());
+          for (NoteImportItem item : batch) {
+            NoteEntity note = new NoteEntity();
+            note.setUser(user);
+            note.setText(item.text());
+            note.setDate(item.date());
+            note.setCostUSD(0.0);
+            notes.add(note);
+          }
+          noteRepository.saveAll(notes);
+
+          List<NoteTermEntity> terms = new ArrayList<>();
+          for (NoteEntity note : notes) {
+            SearchTokenizer.termFrequencies(note.getText())
+                .forEach(
+                    (term, frequency) ->
+                        terms.add(new NoteTermEntity(userId, note.getId(), term, frequency)));
+          }
+          noteTermRepository.saveAll(terms);
+
+          Map<LocalDate, Long> dayCounts = new HashMap<>();
+          batch.forEach(item -> dayCounts.merge(item.date(), 1L, Long::sum));
+          dayCounts.forEach((date, count) -> noteDayCountService.add(userId, date, count));
+
+          entityManager.flush();
+          entityManager.clear();
+        });
+    return batch.size();
+  }
+}
@@ -0,0 +1,188 @@
+package cloud.dagbok.backend.service;
+
+import cloud.dagbok.backend.dto.note.NoteCreateRequest;
+import cloud.dagbok.backend.dto.note.NoteEstimate;
+import cloud.dagbok.backend.dto.note.NoteJob;
+import cloud.dagbok.backend.dto.note.NoteJobStatus;
+import cloud.dagbok.backend.dto.note.NoteNew;
+import cloud.dagbok.backend.exceptionHandler.JobQueueFullException;
+import cloud.dagbok.backend.exceptionHandler.MonthlyCostLimitExceededException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityNotFoundException;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.concurrent.DelegatingSecurityContextExecutorService;
+import org.springframework.stereotype.Service;
+
+/**
+ * Runs AI note generation off the servlet thread, either as pollable jobs or as streams. Each
+ * generation gets its own virtual thread, but at most {@code notes.jobs.max-concurrent} talk to
+ * OpenRouter at once and at most {@code notes.jobs.max-pending} may be queued or running before new
+ * submissions are rejected. Tasks run with the submitting request's security context.
+ */
+@Service
+public class NoteJobService {
+  private final NoteService noteService;
+  private final ExecutorService executor =
+      new DelegatingSecurityContextExecutorService(
+          Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("note-job-", 0).factory()));
+  private final Semaphore running;
+  private final AtomicInteger pending = new AtomicInteger();
+  private final int maxPending;
+  private final Cache<UUID, Job> jobs;
+  private static final Logger logger = LoggerFactory.getLogger(NoteJobService.class);
+
+  public NoteJobService(
+      NoteService noteService,
+      @Value("${notes.jobs.max-concurrent:16}") int maxConcurrent,
+      @Value("${notes.jobs.max-pending:200}") int maxPending,
+      @Value("${notes.jobs.retention-minutes:10}") int retentionMinutes) {
+    this.noteService = noteService;
+    this.running = new Semaphore(maxConcurrent);
+    this.maxPending = maxPending;
+    this.jobs =
+        Caffeine.newBuilder().expireAfterWrite(Duration.ofMinutes(retentionMinutes)).build();
+  }
+
+  public NoteJob submit(NoteCreateRequest request, UUID userId) {
+    reservePending();
+
+    Job job = new Job(UUID.randomUUID(), userId);
+    jobs.put(job.id, job);
+    executor.execute(() -> run(job, request));
+    return job.toDto();
+  }
+
+  /**
+   * Generates a note while streaming its text to {@code onDelta}, after passing the call's estimate
+   * to {@code onEstimate}. Exactly one of {@code onComplete} or {@code onError} is called when
+   * generation ends.
+   */
+  public void stream(
+      NoteCreateRequest request,
+      UUID userId,
+      Consumer<NoteEstimate> onEstimate,
+      Consumer<String> onDelta,
+      Consumer<NoteNew> onComplete,
+      Consumer<Throwable> onError) {
+    reservePending();
+
+    executor.execute(
+        () -> {
+          try {
+            running.acquire();
+            try {
+              onComplete.accept(
+                  noteService.streamNewUserNote(request, userId, onEstimate, onDelta));
+            } finally {
+              running.release();
+            }
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            onError.accept(e);
+          } catch (Exception e) {
+            logger.error("Note stream failed for user {}", userId, e);
+            onError.accept(e);
+          } finally {
+            pending.decrementAndGet();
+          }
+        });
+  }
+
+  private void reservePending() {
+    if (pending.incrementAndGet() > maxPending) {
+      pending.decrementAndGet();
+      throw new JobQueueFullException("Too many notes are being generated, try again shortly");
+    }
+  }
+
+  /**
+   * Returns the job's current state, optionally blocking up to {@code wait} for it to finish. Jobs
+   * belonging to other users are reported as not found.
+   */
+  public NoteJob getJob(UUID jobId, UUID userId, Duration wait) {
+    Job job = jobs.getIfPresent(jobId);
+    if (job == null || !job.userId.equals(userId)) {
+      throw new EntityNotFoundException("Job not found with id: " + jobId);
+    }
+
+    if (!wait.isZero() && !job.result.isDone()) {
+      try {
+        job.result.get(wait.toMillis(), TimeUnit.MILLISECONDS);
+      } catch (TimeoutException | ExecutionException e) {
+        // Reported through the job status below
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    return job.toDto();
+  }
+
+  private void run(Job job, NoteCreateRequest request) {
+    try {
+      running.acquire();
+      try {
+        job.started = true;
+        job.result.complete(noteService.createNewUserNote(request, job.userId));
+      } finally {
+        running.release();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      job.result.completeExceptionally(e);
+    } catch (Exception e) {
+      logger.error("Note job {} failed for user {}", job.id, job.userId, e);
+      job.result.completeExceptionally(e);
+    } finally {
+      pending.decrementAndGet();
+    }
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    executor.shutdown();
+  }
+
+  private static final class Job {
+    private final UUID id;
+    private final UUID userId;
+    private final CompletableFuture<NoteNew> result = new CompletableFuture<>();
+    private volatile boolean started;
+
+    private Job(UUID id, UUID userId) {
+      this.id = id;
+      this.userId = userId;
+    }
+
+    private NoteJob toDto() {
+      if (!result.isDone()) {
+        return new NoteJob(id, started ? NoteJobStatus.RUNNING : NoteJobStatus.PENDING, null, null);
+      }
+      try {
+        return new NoteJob(id, NoteJobStatus.COMPLETED, result.join(), null);
+      } catch (Exception e) {
+        Throwable cause = e.getCause() != null ? e.getCause() : e;
+        String error =
+            cause instanceof MonthlyCostLimitExceededException
+                    || cause instanceof EntityNotFoundException
+                ? cause.getMessage()
+                : "Note generation failed";
+        return new NoteJob(id, NoteJobStatus.FAILED, null, error);
+      }
+    }
+  }
+}
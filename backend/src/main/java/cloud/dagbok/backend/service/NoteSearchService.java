@@ -0,0 +1,188 @@
+package cloud.dagbok.backend.service;
+
+import cloud.dagbok.backend.dto.note.NoteItem;
+import cloud.dagbok.backend.dto.note.NoteRanking;
+import cloud.dagbok.backend.dto.note.NoteScore;
+import cloud.dagbok.backend.dto.note.NoteSearchResponse;
+import cloud.dagbok.backend.dto.note.NoteSearchStats;
+import cloud.dagbok.backend.entity.NoteEntity;
+import cloud.dagbok.backend.entity.NoteTermEntity;
+import cloud.dagbok.backend.repository.NoteRepository;
+import cloud.dagbok.backend.repository.NoteTermRepository;
+import cloud.dagbok.backend.utils.PageCursor;
+import cloud.dagbok.backend.utils.SearchTokenizer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Full-text search over a user's notes, backed by the {@code note_terms} inverted index. The index
+ * is kept in sync from note create, update and delete; notes written before the index existed are
+ * picked up by a one-off backfill at startup.
+ *
+ * <p>Notes are split into words by {@link SearchTokenizer}, which drops words shorter than {@value
+ * SearchTokenizer#MIN_TERM_LENGTH} characters, so a search matches the start of a word rather than
+ * any substring of the text, and one-character words are not searchable.
+ *
+ * <p>Every query word must match (as a prefix of some indexed term), and results are ranked by a
+ * TF-IDF score so notes that use the searched words often, or use rare words, come first. Pages
+ * are keyed on {@code (score, id)} of the last hit and cut in the ranking query, so only the notes
+ * of the requested page are read. The total is counted with the first page and carried in the
+ * cursor.
+ */
+@Service
+public class NoteSearchService {
+  private static final int MAX_QUERY_TERMS = 8;
+  private static final int BACKFILL_BATCH_SIZE = 500;
+  private static final String BACKFILL_LOCK = "search-backfill";
+  private static final Duration BACKFILL_LOCK_HOLD = Duration.ofHours(1);
+
+  private final NoteTermRepository noteTermRepository;
+  private final NoteRepository noteRepository;
+  private final LeaderLockService leaderLockService;
+  private static final Logger logger = LoggerFactory.getLogger(NoteSearchService.class);
+
+  @Value("${search.backfill.enabled:true}")
+  private boolean backfillEnabled;
+
+  public NoteSearchService(
+      NoteTermRepository noteTermRepository,
+      NoteRepository noteRepository,
+      LeaderLockService leaderLockService) {
+    this.noteTermRepository = noteTermRepository;
+    this.noteRepository = noteRepository;
+    this.leaderLockService = leaderLockService;
+  }
+
+  @Transactional
+  public void index(UUID noteId, UUID userId, String text) {
+    noteTermRepository.saveAll(toTerms(noteId, userId, text));
+  }
+
+  @Transactional
+  public void reindex(UUID noteId, UUID userId, String text) {
+    noteTermRepository.deleteByNoteId(noteId);
+    noteTermRepository.saveAll(toTerms(noteId, userId, text));
+  }
+
+  @Transactional
+  public void remove(UUID noteId) {
+    noteTermRepository.deleteByNoteId(noteId);
+  }
+
+  @Transactional(readOnly = true)
+  public NoteSearchResponse search(UUID userId, String query, String cursor, int limit) {
+    List<String> queryTerms =
+        SearchTokenizer.termFrequencies(query).keySet().stream().limit(MAX_QUERY_TERMS).toList();
+    if (queryTerms.isEmpty()) {
+      return new NoteSearchResponse(List.of(), null, 0);
+    }
+
+    NoteSearchStats stats = noteTermRepository.findSearchStats(userId, queryTerms);
+    if (stats.documentFrequencies().contains(0L)) {
+      return new NoteSearchResponse(List.of(), null, 0);
+    }
+    double noteCount = Math.max(1, stats.notes());
+    List<Double> idf =
+        stats.documentFrequencies().stream()
+            .map(frequency -> Math.log(1 + noteCount / frequency))
+            .toList();
+
+    NoteScore after = null;
+    long total = -1;
+    if (cursor != null) {
+      String[] position = PageCursor.decode(cursor, 3);
+      try {
+        after = new NoteScore(UUID.fromString(position[1]), Double.parseDouble(position[0]));
+        total = Long.parseLong(position[2]);
+      } catch (NumberFormatException e) {
+        throw new IllegalArgumentException("Invalid cursor");
+      }
+    }
+
+    NoteRanking ranking = noteTermRepository.rankByTerms(userId, queryTerms, idf, after, limit + 1);
+    List<NoteScore> page = ranking.notes();
+    if (after == null) {
+      total = ranking.remaining();
+    }
+
+    String nextCursor = null;
+    if (page.size() > limit) {
+      page = page.subList(0, limit);
+      NoteScore last = page.getLast();
+      nextCursor =
+          PageCursor.encode(
+              String.valueOf(last.score()), last.noteId().toString(), String.valueOf(total));
+    }
+    List<UUID> pageIds = page.stream().map(NoteScore::noteId).toList();
+
+    Map<UUID, NoteItem> notesById =
+        noteRepository.findItemsByIdIn(pageIds, userId).stream()
+            .collect(Collectors.toMap(NoteItem::id, Function.identity()));
+
+    List<NoteItem> notes =
+        pageIds.stream().map(notesById::get).filter(note -> note != null).toList();
+
+    return new NoteSearchResponse(notes, nextCursor, total);
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void backfillInBackground() {
+    if (!backfillEnabled) {
+      return;
+    }
+    Thread.ofVirtual().name("search-backfill").start(this::backfill);
+  }
+
+  /**
+   * Indexes notes that have no terms yet, in id order so the scan always makes progress. Runs on
+   * one node at a time, since two nodes indexing the same note would each insert its terms.
+   *
+   * @return the number of notes indexed, 0 when another node holds the backfill
+   */
+  public int backfill() {
+    if (!leaderLockService.tryAcquire(BACKFILL_LOCK, BACKFILL_LOCK_HOLD)) {
+      return 0;
+    }
+    try {
+      UUID after = new UUID(0, 0);
+      int indexed = 0;
+      List<NoteEntity> batch;
+      do {
+        batch = noteRepository.findUnindexedAfter(after, PageRequest.ofSize(BACKFILL_BATCH_SIZE));
+        for (NoteEntity note : batch) {
+          index(note.getId(), note.getUser().getId(), note.getText());
+          after = note.getId();
+        }
+        indexed += batch.size();
+      } while (batch.size() == BACKFILL_BATCH_SIZE);
+
+      if (indexed > 0) {
+        logger.info("Search index backfill added {} notes", indexed);
+      }
+      return indexed;
+    } finally {
+      leaderLockService.release(BACKFILL_LOCK);
+    }
+  }
+
+  private List<NoteTermEntity> toTerms(UUID noteId, UUID userId, String text) {
+    List<NoteTermEntity> terms = new ArrayList<>();
+    SearchTokenizer.termFrequencies(text)
+        .forEach(
+            (term, frequency) -> terms.add(new NoteTermEntity(userId, noteId, term, frequency)));
+    return terms;
+  }
+}
@@ -3,38 +3,107 @@ package cloud.dagbok.backend.service;
 import cloud.dagbok.backend.dto.note.*;
 import cloud.dagbok.backend.entity.NoteEntity;
 import cloud.dagbok.backend.entity.UserEntity;
+import cloud.dagbok.backend.exceptionHandler.IncompleteStreamException;
 import cloud.dagbok.backend.exceptionHandler.MonthlyCostLimitExceededException;
 import cloud.dagbok.backend.repository.NoteRepository;
 import cloud.dagbok.backend.repository.UserRepository;
+import cloud.dagbok.backend.utils.PageCursor;
 import cloud.dagbok.backend.utils.PromptUtil;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.validation.constraints.NotBlank;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @Service
 public class NoteService {
   private final UserRepository userRepository;
   private final NoteRepository noteRepository;
   private final OpenRouterService openRouterService;
+  private final NoteSearchService noteSearchService;
+  private final NoteDayCountService noteDayCountService;
+  private final CostLedgerService costLedgerService;
+  private final DataVersionService dataVersionService;
+  private final TransactionTemplate transaction;
+  private final boolean downgradeOverBudget;
+  private static final int MAX_RANGE_DAYS = 62;
+  private static final int MAX_RANGE_NOTES = 2000;
   private static final Logger logger = LoggerFactory.getLogger(NoteService.class);
 
   public NoteService(
       UserRepository userRepository,
       NoteRepository noteRepository,
-      OpenRouterService openRouterService) {
+      OpenRouterService openRouterService,
+      NoteSearchService noteSearchService,
+      NoteDayCountService noteDayCountService,
+      CostLedgerService costLedgerService,
+      DataVersionService dataVersionService,
+      PlatformTransactionManager transactionManager,
+      @Value("${notes.ai.downgrade-over-budget:false}") boolean downgradeOverBudget) {
     this.userRepository = userRepository;
     this.noteRepository = noteRepository;
     this.openRouterService = openRouterService;
+    this.noteSearchService = noteSearchService;
+    this.noteDayCountService = noteDayCountService;
+    this.costLedgerService = costLedgerService;
+    this.dataVersionService = dataVersionService;
+    this.transaction = new TransactionTemplate(transactionManager);
+    this.downgradeOverBudget = downgradeOverBudget;
   }
 
   public NoteNew createNewUserNote(NoteCreateRequest request, UUID userId) {
+    return generateAndSaveNote(
+        request,
+        userId,
+        estimate -> {},
+        (user, model) -> openRouterService.chat(userId, model, user.getPrompt(), request.text()));
+  }
+
+  /**
+   * Same as {@link #createNewUserNote}, but streams the generated text to {@code onDelta} as it
+   * arrives. The note is persisted once the stream has finished. When the note is to be generated,
+   * {@code onEstimate} is called first with the model, token and cost estimate of the call.
+   */
+  public NoteNew streamNewUserNote(
+      NoteCreateRequest request,
+      UUID userId,
+      Consumer<NoteEstimate> onEstimate,
+      Consumer<String> onDelta) {
+    return generateAndSaveNote(
+        request,
+        userId,
+        onEstimate,
+        (user, model) ->
+            openRouterService.stream(userId, model, user.getPrompt(), request.text(), onDelta));
+  }
+
+  /**
+   * Generates the note's text with the user's model, reserving the estimated worst-case cost
+   * first. A user whose budget cannot cover the reservation gets the free model instead when
+   * {@code notes.ai.downgrade-over-budget} is set, and a {@link MonthlyCostLimitExceededException}
+   * otherwise. If generation fails the note is saved with its original text, except after an
+   * {@link IncompleteStreamException}, which is rethrown without saving.
+   */
+  private NoteNew generateAndSaveNote(
+      NoteCreateRequest request,
+      UUID userId,
+      Consumer<NoteEstimate> onEstimate,
+      BiFunction<UserEntity, String, PromptUtil.ChatResult> generator) {
     UserEntity user =
         userRepository
             .findById(userId)
@@ -45,10 +114,47 @@ public class NoteService {
     Double cost = null;
 
     if (request.prompt() != null && request.prompt()) {
+      PromptUtil.Estimate estimate =
+          PromptUtil.estimate(user.getModel().getValue(), user.getPrompt(), request.text());
+      CostLedgerService.Reservation reservation = null;
+      if (estimate.costUSD() > 0) {
+        try {
+          reservation = costLedgerService.reserve(userId, estimate.costUSD());
+        } catch (MonthlyCostLimitExceededException e) {
+          if (!downgradeOverBudget) {
+            throw e;
+          }
+          logger.info(
+              "User {} cannot cover {} USD on {}, generating with {}",
+              userId,
+              estimate.costUSD(),
+              estimate.model(),
+              Model.MIMO_V2_FLASH.getValue());
+          estimate =
+              PromptUtil.estimate(Model.MIMO_V2_FLASH.getValue(), user.getPrompt(), request.text());
+        }
+      }
+      onEstimate.accept(
+          new NoteEstimate(
+              estimate.model(), estimate.promptTokens(), estimate.maxTokens(), estimate.costUSD()));
+
+      PromptUtil.ChatResult result = null;
       try {
-        PromptUtil.ChatResult result =
-            openRouterService.chat(user.getModel().getValue(), user.getPrompt(), request.text());
+        result = generator.apply(user, estimate.model());
+      } catch (IncompleteStreamException e) {
+        // Part of the generated text has already been streamed, so the original would replace it
+        if (reservation != null) {
+          costLedgerService.release(reservation);
+        }
+        throw e;
+      } catch (Exception e) {
+        logger.error("AI generation failed for user {}, falling back to original text", userId, e);
+        if (reservation != null) {
+          costLedgerService.release(reservation);
+        }
+      }
 
+      if (result != null) {
         textToSave =
             result.text() + signature(request.date().toLocalDate().toString(), user.getUsername());
         tokens = result.totalTokens();
@@ -60,21 +166,10 @@ public class NoteService {
             result.totalTokens(),
             result.costUSD());
 
-        if (cost != null && cost > 0) {
-          LocalDate now = LocalDate.now();
-          Double totalMonthlyCost =
-              noteRepository.getTotalCostUSDByUserIdByMonth(
-                  user.getId(), now.getYear(), now.getMonthValue());
-
-          if (totalMonthlyCost != null && totalMonthlyCost > 0.01) {
-            throw new MonthlyCostLimitExceededException(totalMonthlyCost);
-          }
+        if (reservation != null) {
+          costLedgerService.settle(reservation, cost);
         }
-
-      } catch (MonthlyCostLimitExceededException e) {
-        throw e;
-      } catch (Exception e) {
-        logger.error("AI generation failed for user {}, falling back to original text", userId, e);
+      } else {
         textToSave =
             request.text() + signature(request.date().toLocalDate().toString(), user.getUsername());
       }
@@ -83,35 +178,35 @@ public class NoteService {
           request.text() + signature(request.date().toLocalDate().toString(), user.getUsername());
     }
 
-    NoteNew savedNote = saveNote(user, textToSave, request.date().toLocalDate(), tokens, cost);
-
-    if (cost != null && cost > 0) {
-      LocalDate now = LocalDate.now();
-      Double totalMonthlyCost =
-          noteRepository.getTotalCostUSDByUserIdByMonth(
-              user.getId(), now.getYear(), now.getMonthValue());
-      user.setMonthlyCost(totalMonthlyCost);
-      userRepository.save(user);
-    }
-
-    return savedNote;
+    return saveNote(user, textToSave, request.date().toLocalDate(), tokens, cost);
   }
 
-  @Transactional
-  protected NoteNew saveNote(
+  /**
+   * Stores the note with its search terms, day count and data version bump in one transaction,
+   * bumping first as {@link NoteDayCountService} requires. Called from {@link
+   * #generateAndSaveNote}, which runs outside any transaction so none is held open during the model
+   * call; a self-call would bypass {@code @Transactional}, hence the template.
+   */
+  private NoteNew saveNote(
       UserEntity user, String text, LocalDate date, Integer tokens, Double cost) {
-    NoteEntity note = new NoteEntity();
-    note.setUser(user);
-    note.setText(text);
-    note.setDate(date);
-    note.setTokensUsed(tokens);
-    note.setCostUSD(cost != null ? cost : 0.0);
-
-    noteRepository.save(note);
-    return convertToDTO(note);
+    return transaction.execute(
+        status -> {
+          dataVersionService.bump(user.getId());
+          NoteEntity note = new NoteEntity();
+          note.setUser(user);
+          note.setText(text);
+          note.setDate(date);
+          note.setTokensUsed(tokens);
+          note.setCostUSD(cost != null ? cost : 0.0);
+
+          noteRepository.save(note);
+          noteSearchService.index(note.getId(), user.getId(), text);
+          noteDayCountService.increment(user.getId(), date);
+          return toNoteNew(note);
+        });
   }
 
-  private NoteNew convertToDTO(NoteEntity note) {
+  static NoteNew toNoteNew(NoteEntity note) {
     return new NoteNew(
         note.getId(),
         note.getText(),
@@ -129,27 +224,100 @@ public class NoteService {
                     new EntityNotFoundException(
                         "Note not found with id: " + noteId + " for user with id: " + userId));
 
+    dataVersionService.bump(userId);
     noteToDelete.setDeletedAt(LocalDateTime.now());
     var deletedNote = noteRepository.save(noteToDelete);
+    noteSearchService.remove(noteId);
+    noteDayCountService.decrement(userId, deletedNote.getDate());
 
+    return toNote(deletedNote);
+  }
+
+  static Note toNote(NoteEntity note) {
     return new Note(
-        deletedNote.getId(),
-        deletedNote.getText(),
-        deletedNote.getUser().getId(),
-        deletedNote.getCreatedAt(),
-        deletedNote.getDeletedAt());
+        note.getId(),
+        note.getText(),
+        note.getUser().getId(),
+        note.getCreatedAt(),
+        note.getDeletedAt());
   }
 
+  static NoteItem toNoteItem(NoteKeysetRow row) {
+    return new NoteItem(row.id(), row.text());
+  }
+
+  /**
+   * Returns up to {@code limit} of the day's notes in creation order, starting after {@code cursor}
+   * (the {@code nextCursor} of the previous page), or from the beginning when it is {@code null}.
+   */
   @Transactional(readOnly = true)
-  public NoteResponse getNoteByDate(UUID userId, LocalDateTime dateTime) {
+  public NoteResponse getNoteByDate(UUID userId, LocalDateTime dateTime, String cursor, int limit) {
     LocalDate date = dateTime.toLocalDate();
+    Pageable pageable = PageRequest.ofSize(limit + 1);
+
+    List<NoteKeysetRow> rows;
+    if (cursor == null) {
+      rows = noteRepository.findPageByDate(userId, date, pageable);
+    } else {
+      String[] position = PageCursor.decode(cursor, 2);
+      try {
+        rows =
+            noteRepository.findPageByDateAfter(
+                userId,
+                date,
+                LocalDateTime.parse(position[0]),
+                UUID.fromString(position[1]),
+                pageable);
+      } catch (DateTimeParseException e) {
+        throw new IllegalArgumentException("Invalid cursor");
+      }
+    }
+
+    String nextCursor = null;
+    if (rows.size() > limit) {
+      rows = rows.subList(0, limit);
+      NoteKeysetRow last = rows.getLast();
+      nextCursor = PageCursor.encode(last.createdAt().toString(), last.id().toString());
+    }
 
-    List<NoteEntity> entities = noteRepository.findByDateAndUserIdAndDeletedAtIsNull(date, userId);
+    List<NoteItem> notes = rows.stream().map(NoteService::toNoteItem).toList();
+    return new NoteResponse(notes, nextCursor);
+  }
+
+  /**
+   * Returns the notes of every day from {@code from} to {@code to} (both inclusive) with one
+   * query, grouped by date, so the calendar can load a whole month at once. At most {@value
+   * #MAX_RANGE_NOTES} notes are returned; {@code truncated} is set when there were more.
+   */
+  @Transactional(readOnly = true)
+  public NoteRangeResponse getNotesByDateRange(UUID userId, LocalDate from, LocalDate to) {
+    if (to.isBefore(from)) {
+      throw new IllegalArgumentException("'to' must not be before 'from'");
+    }
+    if (ChronoUnit.DAYS.between(from, to) >= MAX_RANGE_DAYS) {
+      throw new IllegalArgumentException("Range cannot span more than " + MAX_RANGE_DAYS + " days");
+    }
 
-    List<NoteItem> notes =
-        entities.stream().map(e -> new NoteItem(e.getId(), e.getText())).toList();
+    List<NoteRangeRow> rows =
+        noteRepository.findByDateRange(
+            userId, from, to.plusDays(1), PageRequest.ofSize(MAX_RANGE_NOTES + 1));
+    boolean truncated = rows.size() > MAX_RANGE_NOTES;
+    if (truncated) {
+      rows = rows.subList(0, MAX_RANGE_NOTES);
+    }
 
-    return new NoteResponse(notes);
+    List<NotesOfDate> days = new ArrayList<>();
+    List<NoteItem> notes = null;
+    LocalDate current = null;
+    for (NoteRangeRow row : rows) {
+      if (!row.date().equals(current)) {
+        current = row.date();
+        notes = new ArrayList<>();
+        days.add(new NotesOfDate(current, notes));
+      }
+      notes.add(new NoteItem(row.id(), row.text()));
+    }
+    return new NoteRangeResponse(days, truncated);
   }
 
   @Transactional(readOnly = true)
@@ -160,7 +328,7 @@ public class NoteService {
     if (year < 1900 || year > 2100) {
       throw new IllegalArgumentException("Year must be between 1900 and 2100, got: " + year);
     }
-    List<NotesCountByDate> counts = noteRepository.countNotesByDate(userId, year, month);
+    List<NotesCountByDate> counts = noteDayCountService.countsForMonth(userId, year, month);
     return new NoteItemWithDate(counts);
   }
 
@@ -176,12 +344,9 @@ public class NoteService {
 
     noteEntity.setText(text);
     NoteEntity updatedEntity = noteRepository.save(noteEntity);
-    return new Note(
-        updatedEntity.getId(),
-        updatedEntity.getText(),
-        updatedEntity.getUser().getId(),
-        updatedEntity.getCreatedAt(),
-        updatedEntity.getDeletedAt());
+    noteSearchService.reindex(id, userId, text);
+    dataVersionService.bump(userId);
+    return toNote(updatedEntity);
   }
 
   private String signature(String date, String username) {
@@ -198,15 +363,8 @@ public class NoteService {
         .formatted(date, username);
   }
 
-  @Transactional(readOnly = true)
-  public NoteResponse findNotesByText(UUID userId, String searchText) {
-    List<NoteEntity> entities =
-        noteRepository.findByTextContainingIgnoreCaseAndUserIdAndDeletedAtIsNull(
-            searchText, userId);
-
-    List<NoteItem> notes =
-        entities.stream().map(e -> new NoteItem(e.getId(), e.getText())).toList();
-
-    return new NoteResponse(notes);
+  public NoteSearchResponse findNotesByText(
+      UUID userId, String searchText, String cursor, int limit) {
+    return noteSearchService.search(userId, searchText, cursor, limit);
   }
 }
@@ -1,17 +1,284 @@
 package cloud.dagbok.backend.service;
 
+import cloud.dagbok.backend.exceptionHandler.OpenRouterUnavailableException;
+import cloud.dagbok.backend.utils.CircuitBreaker;
 import cloud.dagbok.backend.utils.PromptUtil;
 import cloud.dagbok.backend.utils.PromptUtil.ChatResult;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+/**
+ * Calls OpenRouter through the shared {@code openRouterHttpClient}. Each model has its own
+ * bulkhead, so at most {@code openrouter.bulkhead.max-concurrent} requests to it are in flight
+ * and a slow model cannot take every caller with it. Each model also has its own circuit breaker:
+ * after {@code openrouter.circuit.failure-threshold} consecutive timeouts, connection errors, 429s
+ * or 5xx responses, calls fail immediately with {@link OpenRouterUnavailableException} for {@code
+ * openrouter.circuit.open-seconds}, which callers treat like any other failed generation.
+ *
+ * <p>Successful results are kept for {@code openrouter.result-cache.ttl-minutes}, keyed by a hash
+ * of (user, model, prompt, message). An identical request by the same user in that window gets the
+ * stored text back without calling the model, reported with zero usage and cost since nothing was
+ * spent. Results are never shared between users, so a replay cannot reveal what someone else wrote.
+ *
+ * <p>Every call to the model is timed as {@code openrouter.request} (tagged with the model and
+ * whether it succeeded), and the tokens and USD it reported are counted as {@code
+ * openrouter.tokens} and {@code openrouter.cost}.
+ */
 @Service
 public class OpenRouterService {
+  private final HttpClient client;
+  private final String apiKey;
+  private final URI uri;
+  private final Duration requestTimeout;
+  private final int maxConcurrentPerModel;
+  private final long bulkheadWaitMillis;
+  private final int failureThreshold;
+  private final Duration openDuration;
+  private final Map<String, Semaphore> bulkheads = new ConcurrentHashMap<>();
+  private final Map<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+  private final Cache<String, ChatResult> results;
+  private final MeterRegistry meterRegistry;
+  private static final Logger logger = LoggerFactory.getLogger(OpenRouterService.class);
 
-  @Value("${openrouter.api-key}")
-  private String apiKey;
+  public OpenRouterService(
+      HttpClient openRouterHttpClient,
+      @Value("${openrouter.api-key}") String apiKey,
+      @Value("${openrouter.url:https://openrouter.ai/api/v1/chat/completions}") String url,
+      @Value("${openrouter.request-timeout-seconds:60}") long requestTimeoutSeconds,
+      @Value("${openrouter.bulkhead.max-concurrent:8}") int maxConcurrentPerModel,
+      @Value("${openrouter.bulkhead.max-wait-millis:2000}") long bulkheadWaitMillis,
+      @Value("${openrouter.circuit.failure-threshold:5}") int failureThreshold,
+      @Value("${openrouter.circuit.open-seconds:30}") long openSeconds,
+      @Value("${openrouter.result-cache.max-size:1000}") long resultCacheMaxSize,
+      @Value("${openrouter.result-cache.ttl-minutes:10}") long resultCacheTtlMinutes,
+      MeterRegistry meterRegistry) {
+    this.client = openRouterHttpClient;
+    this.apiKey = apiKey;
+    this.uri = URI.create(url);
+    this.requestTimeout = Duration.ofSeconds(requestTimeoutSeconds);
+    this.maxConcurrentPerModel = maxConcurrentPerModel;
+    this.bulkheadWaitMillis = bulkheadWaitMillis;
+    this.failureThreshold = failureThreshold;
+    this.openDuration = Duration.ofSeconds(openSeconds);
+    this.results =
+        Caffeine.newBuilder()
+            .maximumSize(resultCacheMaxSize)
+            .expireAfterWrite(Duration.ofMinutes(resultCacheTtlMinutes))
+            .recordStats()
+            .build();
+    this.meterRegistry = meterRegistry;
+    CaffeineCacheMetrics.monitor(meterRegistry, results, "openrouter.results");
+  }
+
+  public ChatResult chat(UUID userId, String model, String prompt, String message) {
+    String selectedModel = PromptUtil.selectModel(model);
+    String cacheKey = cacheKey(userId, selectedModel, prompt, message);
+    ChatResult cached = results.getIfPresent(cacheKey);
+    if (cached != null) {
+      return reused(cached);
+    }
+
+    ChatResult result =
+        call(
+            selectedModel,
+            () -> {
+              HttpResponse<InputStream> response =
+                  client.send(
+                      request(selectedModel, prompt, message, false),
+                      HttpResponse.BodyHandlers.ofInputStream());
+              try (InputStream body = response.body()) {
+                checkStatus(response.statusCode(), body);
+                return PromptUtil.parseResponse(body, selectedModel);
+              }
+            });
+    results.put(cacheKey, result);
+    return result;
+  }
+
+  /**
+   * Streams the completion as it is generated, passing each content delta to {@code onDelta}. The
+   * returned result carries the full text and the usage reported in the final chunk.
+   */
+  public ChatResult stream(
+      UUID userId, String model, String prompt, String message, Consumer<String> onDelta) {
+    String selectedModel = PromptUtil.selectModel(model);
+    String cacheKey = cacheKey(userId, selectedModel, prompt, message);
+    ChatResult cached = results.getIfPresent(cacheKey);
+    if (cached != null) {
+      onDelta.accept(cached.text());
+      return reused(cached);
+    }
+
+    ChatResult result =
+        call(
+            selectedModel,
+            () -> {
+              HttpResponse<Stream<String>> response =
+                  client.send(
+                      request(selectedModel, prompt, message, true),
+                      HttpResponse.BodyHandlers.ofLines());
+              try (Stream<String> lines = response.body()) {
+                if (response.statusCode() / 100 != 2) {
+                  throw new OpenRouterHttpException(
+                      response.statusCode(), String.join("\n", lines.toList()));
+                }
+                return PromptUtil.parseStream(lines.iterator(), selectedModel, onDelta);
+              }
+            });
+    results.put(cacheKey, result);
+    return result;
+  }
+
+  private static ChatResult reused(ChatResult cached) {
+    return new ChatResult(cached.text(), 0, 0, 0, 0.0);
+  }
+
+  private static String cacheKey(UUID userId, String model, String prompt, String message) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      for (String part : new String[] {userId.toString(), model, prompt, message}) {
+        digest.update((part == null ? "" : part).getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+      }
+      return Base64.getEncoder().encodeToString(digest.digest());
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 not available", e);
+    }
+  }
+
+  private HttpRequest request(String model, String prompt, String message, boolean stream)
+      throws Exception {
+    if (apiKey == null || apiKey.isBlank()) {
+      throw new IllegalArgumentException("OpenRouter API key is missing");
+    }
+    String body = PromptUtil.buildChatBody(model, prompt, message, stream);
+    return PromptUtil.buildRequest(uri, apiKey, body, requestTimeout);
+  }
+
+  private static void checkStatus(int status, InputStream body) throws IOException {
+    if (status / 100 != 2) {
+      throw new OpenRouterHttpException(
+          status, new String(body.readNBytes(4000), StandardCharsets.UTF_8));
+    }
+  }
+
+  private ChatResult call(String model, OpenRouterCall call) {
+    Semaphore bulkhead =
+        bulkheads.computeIfAbsent(model, m -> new Semaphore(maxConcurrentPerModel, true));
+    CircuitBreaker breaker =
+        breakers.computeIfAbsent(model, m -> new CircuitBreaker(failureThreshold, openDuration));
+
+    try {
+      if (!bulkhead.tryAcquire(bulkheadWaitMillis, TimeUnit.MILLISECONDS)) {
+        throw new OpenRouterUnavailableException("Too many OpenRouter calls for model " + model);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new OpenRouterUnavailableException("Interrupted waiting for OpenRouter");
+    }
+    if (!breaker.tryAcquire()) {
+      bulkhead.release();
+      throw new OpenRouterUnavailableException("OpenRouter is unavailable for model " + model);
+    }
+
+    Timer.Sample sample = Timer.start(meterRegistry);
+    String outcome = "error";
+    try {
+      ChatResult result = call.execute();
+      breaker.onSuccess();
+      outcome = "success";
+      recordUsage(model, result);
+      return result;
+    } catch (OpenRouterHttpException e) {
+      if (e.status == 429 || e.status >= 500) {
+        breaker.onFailure();
+      } else {
+        breaker.onSuccess();
+      }
+      throw new RuntimeException(
+          "OpenRouter error: HTTP " + e.status + " body=" + PromptUtil.safeBody(e.body), e);
+    } catch (IOException | UncheckedIOException e) {
+      breaker.onFailure();
+      logger.warn("OpenRouter call for model {} failed: {}", model, e.toString());
+      throw new RuntimeException("Failed to call OpenRouter: " + e.getMessage(), e);
+    } catch (RuntimeException e) {
+      breaker.onSuccess();
+      throw e;
+    } catch (Exception e) {
+      breaker.onSuccess();
+      throw new RuntimeException("Failed to call OpenRouter: " + e.getMessage(), e);
+    } finally {
+      sample.stop(
+          Timer.builder("openrouter.request")
+              .description("Time spent on OpenRouter chat completions")
+              .tag("model", model)
+              .tag("outcome", outcome)
+              .publishPercentileHistogram()
+              .register(meterRegistry));
+      bulkhead.release();
+    }
+  }
+
+  private void recordUsage(String model, ChatResult result) {
+    tokenCounter(model, "prompt").increment(result.promptTokens());
+    tokenCounter(model, "completion").increment(result.completionTokens());
+    Counter.builder("openrouter.cost")
+        .description("Cost reported by OpenRouter")
+        .baseUnit("usd")
+        .tag("model", model)
+        .register(meterRegistry)
+        .increment(result.costUSD());
+  }
+
+  private Counter tokenCounter(String model, String type) {
+    return Counter.builder("openrouter.tokens")
+        .description("Tokens reported by OpenRouter")
+        .baseUnit("tokens")
+        .tag("model", model)
+        .tag("type", type)
+        .register(meterRegistry);
+  }
+
+  @FunctionalInterface
+  private interface OpenRouterCall {
+    ChatResult execute() throws Exception;
+  }
+
+  private static final class OpenRouterHttpException extends IOException {
+    private final int status;
+    private final String body;
 
-  public ChatResult chat(String model, String prompt, String message) {
-    return PromptUtil.chat(apiKey, model, prompt, message);
+    private OpenRouterHttpException(int status, String body) {
+      super("HTTP " + status);
+      this.status = status;
+      this.body = body;
+    }
   }
 }
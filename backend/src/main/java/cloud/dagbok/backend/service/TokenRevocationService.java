@@ -0,0 +1,106 @@
+package cloud.dagbok.backend.service;
+
+import cloud.dagbok.backend.entity.TokenRevocationEntity;
+import cloud.dagbok.backend.repository.TokenRevocationRepository;
+import cloud.dagbok.backend.utils.BloomFilter;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Tokens revoked before their {@code exp}, checked by the JWT filter on every request without
+ * touching the database. Revoked token ids live in memory as a Bloom filter in front of an exact
+ * set: the filter answers "not revoked" for almost every live token from a few bit reads, and the
+ * set rules out its false positives.
+ *
+ * <p>Each revocation is also written to {@code token_revocations}, which every node polls so that
+ * a logout on one node is honoured on the others within {@code jwt.revocation.poll-millis}. Polls
+ * re-read a short window before the previous one, so rows committed late or stamped by a node with
+ * a slightly different clock are still seen. Entries are dropped once the token has expired.
+ */
+@Service
+public class TokenRevocationService {
+  private static final double FALSE_POSITIVE_RATE = 0.01;
+  private static final long POLL_OVERLAP_MILLIS = 10_000;
+
+  private final TokenRevocationRepository tokenRevocationRepository;
+  private final Map<String, Long> revoked = new ConcurrentHashMap<>();
+  private final int initialCapacity;
+  private volatile BloomFilter bloomFilter;
+  private int capacity;
+  private long lastPoll;
+  private static final Logger logger = LoggerFactory.getLogger(TokenRevocationService.class);
+
+  public TokenRevocationService(
+      TokenRevocationRepository tokenRevocationRepository,
+      @Value("${jwt.revocation.expected-size:10000}") int expectedSize) {
+    this.tokenRevocationRepository = tokenRevocationRepository;
+    this.initialCapacity = expectedSize;
+    this.capacity = expectedSize;
+    this.bloomFilter = new BloomFilter(expectedSize, FALSE_POSITIVE_RATE);
+  }
+
+  public boolean isRevoked(String tokenId) {
+    return bloomFilter.mightContain(tokenId) && revoked.containsKey(tokenId);
+  }
+
+  /** Revokes the token on this node immediately and on the others at their next poll. */
+  @Transactional
+  public void revoke(String tokenId, Instant expiresAt) {
+    long now = System.currentTimeMillis();
+    if (expiresAt.toEpochMilli() <= now) {
+      return;
+    }
+    tokenRevocationRepository.save(
+        new TokenRevocationEntity(tokenId, expiresAt.toEpochMilli(), now));
+    remember(tokenId, expiresAt.toEpochMilli());
+  }
+
+  @Scheduled(fixedDelayString = "${jwt.revocation.poll-millis:1000}")
+  public void poll() {
+    long now = System.currentTimeMillis();
+    long since = lastPoll == 0 ? 0 : lastPoll - POLL_OVERLAP_MILLIS;
+    for (TokenRevocationEntity row : tokenRevocationRepository.findRevokedSince(since, now)) {
+      remember(row.getTokenId(), row.getExpiresAt());
+    }
+    lastPoll = now;
+  }
+
+  /** Forgets expired tokens, rebuilding the Bloom filter without them, and trims the table. */
+  @Scheduled(fixedRate = 10 * 60 * 1000, initialDelay = 10 * 60 * 1000)
+  @Transactional
+  public void prune() {
+    long now = System.currentTimeMillis();
+    if (revoked.values().removeIf(expiresAt -> expiresAt <= now)) {
+      rebuild();
+    }
+    int deleted = tokenRevocationRepository.deleteExpired(now);
+    if (deleted > 0) {
+      logger.info("Removed {} expired token revocations", deleted);
+    }
+  }
+
+  private synchronized void remember(String tokenId, long expiresAt) {
+    if (revoked.putIfAbsent(tokenId, expiresAt) != null) {
+      return;
+    }
+    if (revoked.size() > capacity) {
+      rebuild();
+    } else {
+      bloomFilter.add(tokenId);
+    }
+  }
+
+  private synchronized void rebuild() {
+    capacity = Math.max(initialCapacity, revoked.size() * 2);
+    BloomFilter rebuilt = new BloomFilter(capacity, FALSE_POSITIVE_RATE);
+    revoked.keySet().forEach(rebuilt::add);
+    bloomFilter = rebuilt;
+  }
+}
@@ -15,11 +15,10 @@ import cloud.dagbok.backend.exceptionHandler.ConflictException;
 import cloud.dagbok.backend.repository.TokenRepository;
 import cloud.dagbok.backend.repository.UserRepository;
 import cloud.dagbok.backend.utils.JwtUtil;
+import cloud.dagbok.backend.utils.JwtUtil.TokenClaims;
+import io.jsonwebtoken.JwtException;
 import jakarta.persistence.EntityNotFoundException;
-import java.time.LocalDateTime;
-import java.util.List;
 import java.util.UUID;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -28,6 +27,11 @@ public class UserService {
   private final UserRepository userRepository;
   private final TokenRepository tokenRepository;
   private final JwtUtil jwtUtil;
+  private final UserStatusCache userStatusCache;
+  private final CostLedgerService costLedgerService;
+  private final DemoUserExpiryService demoUserExpiryService;
+  private final TokenRevocationService tokenRevocationService;
+  private final DataVersionService dataVersionService;
   private static final String DEFAULT_PROMPT =
       """
       You are an expert AI Note Assistant.
@@ -42,10 +46,22 @@ public class UserService {
   private static final Model DEFAULT_MODEL = GPT_4O_MINI;
 
   public UserService(
-      UserRepository userRepository, TokenRepository tokenRepository, JwtUtil jwtUtil) {
+      UserRepository userRepository,
+      TokenRepository tokenRepository,
+      JwtUtil jwtUtil,
+      UserStatusCache userStatusCache,
+      CostLedgerService costLedgerService,
+      DemoUserExpiryService demoUserExpiryService,
+      TokenRevocationService tokenRevocationService,
+      DataVersionService dataVersionService) {
     this.userRepository = userRepository;
     this.tokenRepository = tokenRepository;
     this.jwtUtil = jwtUtil;
+    this.userStatusCache = userStatusCache;
+    this.costLedgerService = costLedgerService;
+    this.demoUserExpiryService = demoUserExpiryService;
+    this.tokenRevocationService = tokenRevocationService;
+    this.dataVersionService = dataVersionService;
   }
 
   @Transactional
@@ -74,7 +90,9 @@ public class UserService {
       throw new EntityNotFoundException("Invalid credentials");
     }
 
-    String accessToken = jwtUtil.generateToken(user.getUsername(), 1000 * 60 * 60 * 24 * 7L);
+    String accessToken =
+        jwtUtil.generateToken(
+            user.getId(), user.getUsername(), user.getRole(), 1000 * 60 * 60 * 24 * 7L);
 
     TokenEntity tokenEntity =
         tokenRepository
@@ -86,7 +104,7 @@ public class UserService {
                   return newToken;
                 });
 
-    tokenEntity.setToken(accessToken);
+    tokenEntity.setTokenId(jwtUtil.verify(accessToken).tokenId());
     tokenRepository.save(tokenEntity);
 
     return new Token(accessToken);
@@ -100,12 +118,15 @@ public class UserService {
         userRepository.save(
             new UserEntity(null, username, Role.DEMO, DEFAULT_PROMPT, DEFAULT_MODEL));
 
-    String accessToken = jwtUtil.generateToken(username, 1000 * 60 * 5L);
+    String accessToken =
+        jwtUtil.generateToken(
+            user.getId(), username, user.getRole(), demoUserExpiryService.ttl().toMillis());
 
     TokenEntity tokenEntity = new TokenEntity();
     tokenEntity.setUser(user);
-    tokenEntity.setToken(accessToken);
+    tokenEntity.setTokenId(jwtUtil.verify(accessToken).tokenId());
     tokenRepository.save(tokenEntity);
+    demoUserExpiryService.schedule(user.getId());
 
     return new Token(accessToken);
   }
@@ -129,6 +150,7 @@ public class UserService {
 
     user.setPrompt(newPrompt);
     userRepository.save(user);
+    dataVersionService.bump(userId);
     return toUserProfile(user);
   }
 
@@ -141,6 +163,7 @@ public class UserService {
 
     user.setModel(Model.fromValue(model));
     userRepository.save(user);
+    dataVersionService.bump(userId);
     return toUserProfile(user);
   }
 
@@ -150,19 +173,20 @@ public class UserService {
         user.getRole().name(),
         user.getPrompt(),
         user.getModel(),
-        user.getMonthlyCost(),
+        costLedgerService.monthlyCost(user.getId()),
         user.getTotalCostUSD());
   }
 
+  /** Revokes the token until its expiry. Tokens that are already expired or invalid are ignored. */
+  @Transactional
   public void invalidateToken(String token) {
-    tokenRepository.findByToken(token).ifPresent(tokenRepository::delete);
-  }
-
-  @Scheduled(cron = "0 */10 * * * *")
-  public void cleanupExpiredDemoUsers() {
-    LocalDateTime fiveMinutesAgo = LocalDateTime.now().minusMinutes(5);
-    List<UserEntity> expiredDemoUsers =
-        userRepository.findByRoleAndCreatedAtBefore(Role.DEMO, fiveMinutesAgo);
-    userRepository.deleteAll(expiredDemoUsers);
+    TokenClaims claims;
+    try {
+      claims = jwtUtil.verify(token);
+    } catch (JwtException | IllegalArgumentException e) {
+      return;
+    }
+    tokenRevocationService.revoke(claims.tokenId(), claims.expiresAt());
+    tokenRepository.findByTokenId(claims.tokenId()).ifPresent(tokenRepository::delete);
   }
 }
@@ -0,0 +1,52 @@
+package cloud.dagbok.backend.service;
+
+import cloud.dagbok.backend.entity.Role;
+import cloud.dagbok.backend.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.UUID;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Short-lived view of each user's current role, used by the JWT filter to notice deleted users and
+ * role changes without querying the users table on every request. An empty value means the user no
+ * longer exists.
+ */
+@Component
+public class UserStatusCache {
+  private final UserRepository userRepository;
+  private final Cache<UUID, Optional<Role>> cache;
+
+  public UserStatusCache(
+      UserRepository userRepository,
+      @Value("${jwt.user-cache.max-size:10000}") long maxSize,
+      @Value("${jwt.user-cache.ttl-seconds:30}") long ttlSeconds,
+      MeterRegistry meterRegistry) {
+    this.userRepository = userRepository;
+    this.cache =
+        Caffeine.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+            .recordStats()
+            .build();
+    CaffeineCacheMetrics.monitor(meterRegistry, cache, "jwt.users");
+  }
+
+  public Optional<Role> currentRole(UUID userId) {
+    return cache.get(userId, userRepository::findRoleById);
+  }
+
+  public void evict(UUID userId) {
+    cache.invalidate(userId);
+  }
+
+  public void evictAll(Collection<UUID> userIds) {
+    cache.invalidateAll(userIds);
+  }
+}
@@ -0,0 +1,71 @@
+package cloud.dagbok.backend.utils;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-size Bloom filter over strings. {@link #mightContain} never returns false for a key that
+ * was added, and returns true for other keys with roughly the {@code falsePositiveRate} it was
+ * sized for, as long as no more than {@code expectedInsertions} keys are added. Keys cannot be
+ * removed; rebuild a new filter instead. Safe for concurrent use without locking.
+ */
+public final class BloomFilter {
+  private final AtomicLongArray bits;
+  private final long bitCount;
+  private final int hashCount;
+
+  public BloomFilter(int expectedInsertions, double falsePositiveRate) {
+    int n = Math.max(1, expectedInsertions);
+    long m = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+    this.bitCount = Math.max(64, (m + 63) / 64 * 64);
+    this.hashCount = Math.max(1, (int) Math.round((double) bitCount / n * Math.log(2)));
+    this.bits = new AtomicLongArray((int) (bitCount / 64));
+  }
+
+  public void add(String key) {
+    long hash = hash(key);
+    long h1 = mix(hash);
+    long h2 = mix(hash ^ 0x9E3779B97F4A7C15L);
+    for (int i = 0; i < hashCount; i++) {
+      long bit = Math.floorMod(h1 + i * h2, bitCount);
+      int word = (int) (bit >>> 6);
+      long mask = 1L << bit;
+      long current;
+      do {
+        current = bits.get(word);
+      } while ((current & mask) == 0 && !bits.compareAndSet(word, current, current | mask));
+    }
+  }
+
+  public boolean mightContain(String key) {
+    long hash = hash(key);
+    long h1 = mix(hash);
+    long h2 = mix(hash ^ 0x9E3779B97F4A7C15L);
+    for (int i = 0; i < hashCount; i++) {
+      long bit = Math.floorMod(h1 + i * h2, bitCount);
+      if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** 64-bit FNV-1a. */
+  private static long hash(String key) {
+    long hash = 0xCBF29CE484222325L;
+    for (int i = 0; i < key.length(); i++) {
+      hash ^= key.charAt(i);
+      hash *= 0x100000001B3L;
+    }
+    return hash;
+  }
+
+  /** MurmurHash3 finaliser, so nearby FNV values spread over the whole range. */
+  private static long mix(long h) {
+    h ^= h >>> 33;
+    h *= 0xFF51AFD7ED558CCDL;
+    h ^= h >>> 33;
+    h *= 0xC4CEB185D4F34E53L;
+    h ^= h >>> 33;
+    return h;
+  }
+}
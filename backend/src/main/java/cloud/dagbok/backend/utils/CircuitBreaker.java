@@ -0,0 +1,62 @@
+package cloud.dagbok.backend.utils;
+
+import java.time.Duration;
+
+/**
+ * Consecutive-failure circuit breaker. After {@code failureThreshold} failures in a row the circuit
+ * opens and {@link #tryAcquire()} refuses calls for {@code openDuration}; after that a single trial
+ * call is let through, and its outcome either closes the circuit or opens it again.
+ *
+ * <p>Every successful {@link #tryAcquire()} must be followed by {@link #onSuccess()} or {@link
+ * #onFailure()}.
+ */
+public final class CircuitBreaker {
+  private enum State {
+    CLOSED,
+    OPEN,
+    HALF_OPEN
+  }
+
+  private final int failureThreshold;
+  private final long openNanos;
+
+  private State state = State.CLOSED;
+  private int failures;
+  private long openedAt;
+
+  public CircuitBreaker(int failureThreshold, Duration openDuration) {
+    this.failureThreshold = failureThreshold;
+    this.openNanos = openDuration.toNanos();
+  }
+
+  public synchronized boolean tryAcquire() {
+    return switch (state) {
+      case CLOSED -> true;
+      case HALF_OPEN -> false;
+      case OPEN -> {
+        if (System.nanoTime() - openedAt < openNanos) {
+          yield false;
+        }
+        state = State.HALF_OPEN;
+        yield true;
+      }
+    };
+  }
+
+  public synchronized void onSuccess() {
+    state = State.CLOSED;
+    failures = 0;
+  }
+
+  public synchronized void onFailure() {
+    failures++;
+    if (state == State.HALF_OPEN || failures >= failureThreshold) {
+      state = State.OPEN;
+      openedAt = System.nanoTime();
+    }
+  }
+
+  public synchronized boolean isOpen() {
+    return state != State.CLOSED;
+  }
+}
@@ -0,0 +1,34 @@
+package cloud.dagbok.backend.utils;
+
+import java.util.function.Supplier;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
+
+/**
+ * Conditional GETs on a weak ETag of the user's data version. Clients may cache the response but
+ * must revalidate it, and since the ETag is the same for JSON, CBOR and Smile, responses vary by
+ * Accept.
+ */
+public final class ConditionalResponse {
+  private static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
+
+  private ConditionalResponse() {}
+
+  /**
+   * A 304 when the request's {@code If-None-Match} matches {@code eTag} (Spring sets the ETag
+   * header either way), otherwise a 200 with the body, which is only computed in that case.
+   */
+  public static <T> ResponseEntity<T> ifNoneMatch(
+      WebRequest webRequest, String eTag, Supplier<T> body) {
+    if (webRequest.checkNotModified(eTag)) {
+      return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+          .cacheControl(REVALIDATE)
+          .varyBy(HttpHeaders.ACCEPT)
+          .build();
+    }
+    return ResponseEntity.ok().cacheControl(REVALIDATE).varyBy(HttpHeaders.ACCEPT).body(body.get());
+  }
+}
@@ -1,51 +1,136 @@
 package cloud.dagbok.backend.utils;
 
+import cloud.dagbok.backend.entity.Role;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
 import io.jsonwebtoken.security.SignatureException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import jakarta.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Base64;
 import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 import javax.crypto.SecretKey;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 @Component
 public class JwtUtil {
+  public static final String USER_ID_CLAIM = "uid";
+  public static final String ROLE_CLAIM = "role";
+
   @Value("${jwt.secret}")
   private String jwtSecret;
 
+  @Value("${jwt.token-cache.max-size:10000}")
+  private long tokenCacheMaxSize;
+
+  private final MeterRegistry meterRegistry;
+  private final Clock clock;
   private SecretKey key;
+  private JwtParser parser;
+  private Cache<String, TokenClaims> verifiedTokens;
+  private Timer verificationTimer;
 
   private static final Logger logger = LoggerFactory.getLogger(JwtUtil.class);
 
+  @Autowired
+  public JwtUtil(MeterRegistry meterRegistry) {
+    this(meterRegistry, Clock.systemUTC());
+  }
+
+  JwtUtil(MeterRegistry meterRegistry, Clock clock) {
+    this.meterRegistry = meterRegistry;
+    this.clock = clock;
+  }
+
   @PostConstruct
   public void init() {
     this.key = Keys.hmacShaKeyFor(Decoders.BASE64.decode(jwtSecret));
+    this.parser = Jwts.parser().verifyWith(key).clock(() -> Date.from(clock.instant())).build();
+    this.verifiedTokens =
+        Caffeine.newBuilder()
+            .maximumSize(tokenCacheMaxSize)
+            .expireAfter(new UntilExpiry(clock))
+            .recordStats()
+            .build();
+    CaffeineCacheMetrics.monitor(meterRegistry, verifiedTokens, "jwt.tokens");
+    this.verificationTimer =
+        Timer.builder("jwt.verification")
+            .description("Signature check and parsing of tokens not yet in the cache")
+            .publishPercentileHistogram()
+            .register(meterRegistry);
   }
 
-  public String generateToken(String email, Long jwtExpirationMs) {
-    long nowMillis = System.currentTimeMillis();
+  public String generateToken(UUID userId, String username, Role role, Long jwtExpirationMs) {
+    long nowMillis = clock.millis();
     Date now = new Date(nowMillis);
     Date expirationDate = new Date(nowMillis + jwtExpirationMs);
 
     return Jwts.builder()
-        .subject(email)
+        .id(UUID.randomUUID().toString())
+        .subject(username)
+        .claim(USER_ID_CLAIM, userId.toString())
+        .claim(ROLE_CLAIM, role.name())
         .issuedAt(now)
         .expiration(expirationDate)
         .signWith(key)
         .compact();
   }
 
-  public String getUsernameFromToken(String token) {
-    return Jwts.parser().verifyWith(key).build().parseSignedClaims(token).getPayload().getSubject();
+  /**
+   * Verifies the token and returns its identity claims. Verified tokens are cached under a SHA-256
+   * digest of the token until their {@code exp}, so repeat requests with the same cookie skip the
+   * HMAC check and JSON parsing entirely. The cache runs on the monotonic system ticker, which a
+   * wall-clock step does not move, so {@code exp} is also checked against the clock on every hit.
+   *
+   * <p>Tokens issued before the id and role claims existed only carry a subject, in which case
+   * {@code userId} and {@code role} are {@code null} and the caller has to resolve them some other
+   * way.
+   *
+   * <p>{@code tokenId} identifies the token for revocation: a SHA-256 digest of its {@code jti}
+   * claim, or of the whole token for tokens issued before {@code jti} was added.
+   *
+   * @throws io.jsonwebtoken.ExpiredJwtException if the token has expired
+   * @throws JwtException if the token is malformed or its signature is invalid
+   * @throws IllegalArgumentException if the token is null or empty
+   */
+  public TokenClaims verify(String token) {
+    if (token == null || token.isEmpty()) {
+      throw new IllegalArgumentException("JWT token is empty");
+    }
+    String cacheKey = digest(token);
+    TokenClaims claims =
+        verifiedTokens.get(
+            cacheKey, k -> verificationTimer.record(() -> toTokenClaims(token, parse(token))));
+    if (!claims.expiresAt().isAfter(clock.instant())) {
+      // Parsing again throws the same ExpiredJwtException an uncached token would
+      verifiedTokens.invalidate(cacheKey);
+      return toTokenClaims(token, parse(token));
+    }
+    return claims;
   }
 
   public boolean validateJwtToken(String token) {
     try {
-      Jwts.parser().verifyWith(key).build().parseSignedClaims(token);
+      verify(token);
       return true;
     } catch (SignatureException e) {
       logger.warn("Invalid JWT signature: {}", e.getMessage());
@@ -60,4 +145,68 @@ public class JwtUtil {
     }
     return false;
   }
+
+  private Claims parse(String token) {
+    return parser.parseSignedClaims(token).getPayload();
+  }
+
+  private TokenClaims toTokenClaims(String token, Claims claims) {
+    String jti = claims.getId();
+    String userId = claims.get(USER_ID_CLAIM, String.class);
+    String role = claims.get(ROLE_CLAIM, String.class);
+    Date expiration = claims.getExpiration();
+    return new TokenClaims(
+        digest(jti != null ? jti : token),
+        claims.getSubject(),
+        userId != null ? UUID.fromString(userId) : null,
+        role != null ? Role.valueOf(role) : null,
+        expiration != null ? expiration.toInstant() : Instant.MAX);
+  }
+
+  private static String digest(String token) {
+    try {
+      byte[] hash =
+          MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+      return Base64.getEncoder().encodeToString(hash);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 not available", e);
+    }
+  }
+
+  public record TokenClaims(
+      String tokenId, String username, UUID userId, Role role, Instant expiresAt) {}
+
+  /**
+   * Evicts each cached token at its own {@code exp} claim: the time left until it on {@code clock}
+   * when the token is cached, counted down on the cache's ticker.
+   */
+  static final class UntilExpiry implements Expiry<String, TokenClaims> {
+    private final Clock clock;
+
+    UntilExpiry(Clock clock) {
+      this.clock = clock;
+    }
+
+    @Override
+    public long expireAfterCreate(String key, TokenClaims value, long currentTime) {
+      if (value.expiresAt().equals(Instant.MAX)) {
+        return Long.MAX_VALUE;
+      }
+      // toNanos saturates, so an exp centuries ahead cannot overflow into the past
+      long remainingMillis = value.expiresAt().toEpochMilli() - clock.millis();
+      return remainingMillis > 0 ? TimeUnit.MILLISECONDS.toNanos(remainingMillis) : 0;
+    }
+
+    @Override
+    public long expireAfterUpdate(
+        String key, TokenClaims value, long currentTime, long currentDuration) {
+      return currentDuration;
+    }
+
+    @Override
+    public long expireAfterRead(
+        String key, TokenClaims value, long currentTime, long currentDuration) {
+      return currentDuration;
+    }
+  }
 }
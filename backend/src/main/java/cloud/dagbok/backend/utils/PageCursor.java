@@ -0,0 +1,37 @@
+package cloud.dagbok.backend.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque keyset cursors. The position of the last row of a page is joined with {@code |} and
+ * Base64url-encoded, so clients pass it back unchanged rather than building their own.
+ */
+public final class PageCursor {
+  private static final String SEPARATOR = "|";
+
+  private PageCursor() {}
+
+  public static String encode(String... parts) {
+    return Base64.getUrlEncoder()
+        .withoutPadding()
+        .encodeToString(String.join(SEPARATOR, parts).getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * @throws IllegalArgumentException if the cursor was not produced by {@link #encode} with {@code
+   *     parts} values
+   */
+  public static String[] decode(String cursor, int parts) {
+    try {
+      String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+      String[] values = decoded.split("\\" + SEPARATOR, -1);
+      if (values.length == parts) {
+        return values;
+      }
+    } catch (IllegalArgumentException e) {
+      // Reported below
+    }
+    throw new IllegalArgumentException("Invalid cursor");
+  }
+}
@@ -1,75 +1,83 @@
 package cloud.dagbok.backend.utils;
 
+import cloud.dagbok.backend.exceptionHandler.IncompleteStreamException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
-import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
 import java.time.Duration;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.function.Consumer;
 
 public final class PromptUtil {
 
-  private static final URI OPENROUTER_URI =
-      URI.create("https://openrouter.ai/api/v1/chat/completions");
-
   private static final ObjectMapper MAPPER = new ObjectMapper();
-  private static final HttpClient CLIENT =
-      HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
 
   private static final Map<String, ModelPricing> MODEL_PRICES =
       Map.of(
           "openai/gpt-4o-mini", new ModelPricing(0.00015, 0.0006),
           "xiaomi/mimo-v2-flash:free", new ModelPricing(0.0, 0.0));
 
+  // max_tokens grows with the note being rewritten, between these bounds
+  private static final int MIN_TOKENS = 512;
+  private static final int MAX_TOKENS = 4500;
+  private static final int COMPLETION_TOKENS_PER_INPUT_TOKEN = 2;
+
   private PromptUtil() {}
 
-  public static ChatResult chat(String apiKey, String model, String prompt, String message) {
-    try {
-      if (apiKey == null || apiKey.isBlank()) {
-        throw new IllegalArgumentException("OpenRouter API key is missing");
-      }
+  /**
+   * What a call will look like before it is made: its prompt tokens as counted by {@link
+   * TokenEstimator}, the {@code max_tokens} it will be sent with, and what it costs if the
+   * completion uses all of them. The cost is the upper bound reserved against the monthly budget.
+   */
+  public static Estimate estimate(String model, String prompt, String message) {
+    String selectedModel = selectModel(model);
+    int promptTokens = TokenEstimator.chatTokens(prompt, message);
+    int maxTokens = maxTokens(message);
+    return new Estimate(
+        selectedModel,
+        promptTokens,
+        maxTokens,
+        calculateCost(selectedModel, promptTokens, maxTokens));
+  }
 
-      String selectedModel = selectModel(model);
-      String body = buildChatBody(selectedModel, prompt, message);
-
-      HttpRequest request =
-          HttpRequest.newBuilder()
-              .uri(OPENROUTER_URI)
-              .timeout(Duration.ofSeconds(60))
-              .header("Authorization", "Bearer " + apiKey)
-              .header("Content-Type", "application/json")
-              .header("HTTP-Referer", "https://app.dagbok.cloud")
-              .header("X-Title", "dagbok-backend")
-              .POST(HttpRequest.BodyPublishers.ofString(body))
-              .build();
-
-      HttpResponse<String> response = CLIENT.send(request, HttpResponse.BodyHandlers.ofString());
-      if (response.statusCode() / 100 != 2) {
-        throw new RuntimeException(
-            "OpenRouter error: HTTP "
-                + response.statusCode()
-                + " body="
-                + safeBody(response.body()));
-      }
+  /**
+   * The completion is a cleaned-up, structured version of the note, so it is allowed about twice
+   * the note's tokens rather than a fixed ceiling that short notes never need.
+   */
+  static int maxTokens(String message) {
+    long tokens =
+        MIN_TOKENS / 2 + (long) COMPLETION_TOKENS_PER_INPUT_TOKEN * TokenEstimator.count(message);
+    return Math.clamp(tokens, MIN_TOKENS, MAX_TOKENS);
+  }
 
-      return parseResponse(response.body(), selectedModel);
-    } catch (Exception e) {
-      throw new RuntimeException("Failed to call OpenRouter: " + e.getMessage(), e);
-    }
+  public static HttpRequest buildRequest(URI uri, String apiKey, String body, Duration timeout) {
+    return HttpRequest.newBuilder()
+        .uri(uri)
+        .timeout(timeout)
+        .header("Authorization", "Bearer " + apiKey)
+        .header("Content-Type", "application/json")
+        .header("HTTP-Referer", "https://app.dagbok.cloud")
+        .header("X-Title", "dagbok-backend")
+        .POST(HttpRequest.BodyPublishers.ofString(body))
+        .build();
   }
 
-  private static String selectModel(String model) {
+  public static String selectModel(String model) {
     if (model == null || model.isBlank()) {
       return "openai/gpt-4o-mini";
     }
     return model.trim();
   }
 
-  private static String buildChatBody(String model, String prompt, String message)
+  public static String buildChatBody(String model, String prompt, String message, boolean stream)
       throws Exception {
     ObjectNode root = MAPPER.createObjectNode();
 
@@ -91,37 +99,159 @@ public final class PromptUtil {
     root.put("model", model);
     root.set("messages", messages);
     root.put("temperature", 0.7); // Controls randomness vs. determinism of the output
-    root.put("max_tokens", 4500); // Upper limit on the number of tokens in the response
+    root.put("max_tokens", maxTokens(message)); // Upper limit on tokens in the response
+    if (stream) {
+      root.put("stream", true);
+      root.putObject("usage").put("include", true); // Usage arrives in the last chunk
+    }
 
     return MAPPER.writeValueAsString(root);
   }
 
-  private static ChatResult parseResponse(String responseBody, String model) throws Exception {
-    JsonNode json = MAPPER.readTree(responseBody);
+  /**
+   * Reads a chat completion token by token, keeping only {@code choices[0].message.content} (or
+   * {@code choices[0].text}) and the {@code usage} counts, so the rest of the payload is skipped
+   * without building a tree or buffering the body into a string.
+   */
+  public static ChatResult parseResponse(InputStream body, String model) throws IOException {
+    CompletionFields fields = new CompletionFields();
+
+    try (JsonParser parser = MAPPER.getFactory().createParser(body)) {
+      if (parser.nextToken() != JsonToken.START_OBJECT) {
+        throw new RuntimeException("Response is not a JSON object");
+      }
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String field = parser.currentName();
+        JsonToken value = parser.nextToken();
+        if (field.equals("choices") && value == JsonToken.START_ARRAY) {
+          readChoices(parser, fields);
+        } else if (field.equals("usage") && value == JsonToken.START_OBJECT) {
+          readUsage(parser, fields);
+        } else {
+          parser.skipChildren();
+        }
+      }
+    }
 
-    JsonNode choices = json.path("choices");
-    if (!choices.isArray() || choices.isEmpty()) {
+    if (!fields.hasChoice) {
       throw new RuntimeException("No choices in response");
     }
-    JsonNode content = choices.get(0).path("message").path("content");
-    if (content.isMissingNode() || content.isNull()) {
-      JsonNode alt = choices.get(0).path("text");
-      if (!alt.isMissingNode() && !alt.isNull()) {
-        return new ChatResult(alt.asText(), 0, 0, 0, 0.0);
+    if (fields.content == null) {
+      if (fields.text != null) {
+        return new ChatResult(fields.text, 0, 0, 0, 0.0);
       }
       throw new RuntimeException("No message content in response");
     }
 
-    String text = content.asText();
+    double cost = calculateCost(model, fields.promptTokens, fields.completionTokens);
+
+    return new ChatResult(
+        fields.content, fields.totalTokens, fields.promptTokens, fields.completionTokens, cost);
+  }
+
+  private static void readChoices(JsonParser parser, CompletionFields fields) throws IOException {
+    JsonToken token = parser.nextToken();
+    if (token == JsonToken.START_OBJECT) {
+      fields.hasChoice = true;
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String field = parser.currentName();
+        JsonToken value = parser.nextToken();
+        if (field.equals("message") && value == JsonToken.START_OBJECT) {
+          while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String messageField = parser.currentName();
+            JsonToken messageValue = parser.nextToken();
+            if (messageField.equals("content") && messageValue == JsonToken.VALUE_STRING) {
+              fields.content = parser.getText();
+            } else {
+              parser.skipChildren();
+            }
+          }
+        } else if (field.equals("text") && value == JsonToken.VALUE_STRING) {
+          fields.text = parser.getText();
+        } else {
+          parser.skipChildren();
+        }
+      }
+      token = parser.nextToken();
+    }
+    // Only the first choice is used
+    while (token != null && token != JsonToken.END_ARRAY) {
+      parser.skipChildren();
+      token = parser.nextToken();
+    }
+  }
+
+  private static void readUsage(JsonParser parser, CompletionFields fields) throws IOException {
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.currentName();
+      parser.nextToken();
+      switch (field) {
+        case "prompt_tokens" -> fields.promptTokens = parser.getValueAsInt(0);
+        case "completion_tokens" -> fields.completionTokens = parser.getValueAsInt(0);
+        case "total_tokens" -> fields.totalTokens = parser.getValueAsInt(0);
+        default -> parser.skipChildren();
+      }
+    }
+  }
+
+  /**
+   * Reads OpenRouter's server-sent events: {@code data: {...}} chunks carrying {@code
+   * choices[0].delta.content}, keep-alive comments starting with {@code :}, a final chunk with
+   * {@code usage}, and the {@code data: [DONE]} terminator.
+   *
+   * @throws IncompleteStreamException if the stream ends before {@code [DONE]} or a chunk with a
+   *     {@code finish_reason}, since the text so far may stop mid-sentence
+   */
+  public static ChatResult parseStream(
+      Iterator<String> lines, String model, Consumer<String> onDelta) throws Exception {
+    StringBuilder text = new StringBuilder();
+    JsonNode usage = null;
+    boolean finished = false;
+
+    while (lines.hasNext()) {
+      String line = lines.next();
+      if (!line.startsWith("data:")) {
+        continue;
+      }
+      String data = line.substring(5).trim();
+      if (data.equals("[DONE]")) {
+        finished = true;
+        break;
+      }
+
+      JsonNode chunk = MAPPER.readTree(data);
+      if (chunk.has("error")) {
+        throw new RuntimeException("OpenRouter stream error: " + safeBody(data));
+      }
+      JsonNode delta = chunk.path("choices").path(0).path("delta").path("content");
+      if (delta.isTextual() && !delta.asText().isEmpty()) {
+        text.append(delta.asText());
+        onDelta.accept(delta.asText());
+      }
+      if (chunk.hasNonNull("usage")) {
+        usage = chunk.get("usage");
+      }
+      if (chunk.path("choices").path(0).hasNonNull("finish_reason")) {
+        finished = true;
+      }
+    }
+
+    if (!finished) {
+      throw new IncompleteStreamException(
+          "Stream ended after " + text.length() + " characters without finishing");
+    }
+
+    if (text.isEmpty()) {
+      throw new RuntimeException("No message content in stream");
+    }
 
-    JsonNode usage = json.path("usage");
-    int promptTokens = usage.path("prompt_tokens").asInt(0);
-    int completionTokens = usage.path("completion_tokens").asInt(0);
-    int totalTokens = usage.path("total_tokens").asInt(0);
+    int promptTokens = usage != null ? usage.path("prompt_tokens").asInt(0) : 0;
+    int completionTokens = usage != null ? usage.path("completion_tokens").asInt(0) : 0;
+    int totalTokens = usage != null ? usage.path("total_tokens").asInt(0) : 0;
 
     double cost = calculateCost(model, promptTokens, completionTokens);
 
-    return new ChatResult(text, totalTokens, promptTokens, completionTokens, cost);
+    return new ChatResult(text.toString(), totalTokens, promptTokens, completionTokens, cost);
   }
 
   private static double calculateCost(String model, int promptTokens, int completionTokens) {
@@ -136,7 +266,7 @@ public final class PromptUtil {
     return promptCost + completionCost;
   }
 
-  private static String safeBody(String body) {
+  public static String safeBody(String body) {
     if (body == null) return "";
     return body.length() > 2000 ? body.substring(0, 2000) + "…" : body;
   }
@@ -144,5 +274,16 @@ public final class PromptUtil {
   public record ChatResult(
       String text, int totalTokens, int promptTokens, int completionTokens, double costUSD) {}
 
+  public record Estimate(String model, int promptTokens, int maxTokens, double costUSD) {}
+
   private record ModelPricing(double promptPrice, double completionPrice) {}
+
+  private static final class CompletionFields {
+    private boolean hasChoice;
+    private String content;
+    private String text;
+    private int promptTokens;
+    private int completionTokens;
+    private int totalTokens;
+  }
 }
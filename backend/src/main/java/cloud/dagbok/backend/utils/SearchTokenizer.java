@@ -0,0 +1,42 @@
+package cloud.dagbok.backend.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Splits note text into lower-cased search terms. Anything that is not a letter or digit
+ * separates terms, so Markdown syntax never ends up in the index.
+ */
+public final class SearchTokenizer {
+  public static final int MIN_TERM_LENGTH = 2;
+  public static final int MAX_TERM_LENGTH = 64;
+
+  private SearchTokenizer() {}
+
+  /** Returns each distinct term with its number of occurrences, in order of first appearance. */
+  public static Map<String, Integer> termFrequencies(String text) {
+    Map<String, Integer> frequencies = new LinkedHashMap<>();
+    if (text == null) {
+      return frequencies;
+    }
+
+    int start = -1;
+    for (int i = 0; i <= text.length(); i++) {
+      boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+      if (wordChar && start < 0) {
+        start = i;
+      } else if (!wordChar && start >= 0) {
+        if (i - start >= MIN_TERM_LENGTH) {
+          String term = text.substring(start, i).toLowerCase(Locale.ROOT);
+          if (term.length() > MAX_TERM_LENGTH) {
+            term = term.substring(0, MAX_TERM_LENGTH);
+          }
+          frequencies.merge(term, 1, Integer::sum);
+        }
+        start = -1;
+      }
+    }
+    return frequencies;
+  }
+}
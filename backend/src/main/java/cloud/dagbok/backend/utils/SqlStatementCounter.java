@@ -0,0 +1,69 @@
+package cloud.dagbok.backend.utils;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Hibernate {@link StatementInspector} that counts the statements prepared on the current thread
+ * between {@link #start} and {@link #stop}. Repeated selects are tallied by their SQL text so that
+ * a query issued once per row (N+1) stands out.
+ *
+ * <p>The counts live in a {@link ThreadLocal} and are not handed on to other threads, so
+ * statements run anywhere but the thread that called {@link #start} are not counted: the note job
+ * and SSE stream executors, OpenRouter's virtual threads, scheduled jobs and startup backfills. A
+ * request that hands its database work to one of those is only charged for what it did itself.
+ */
+public final class SqlStatementCounter implements StatementInspector {
+  private static final ThreadLocal<Counts> CURRENT = new ThreadLocal<>();
+
+  @Override
+  public String inspect(String sql) {
+    Counts counts = CURRENT.get();
+    if (counts != null) {
+      counts.record(sql);
+    }
+    return sql;
+  }
+
+  public static Counts start() {
+    Counts counts = new Counts();
+    CURRENT.set(counts);
+    return counts;
+  }
+
+  public static void stop() {
+    CURRENT.remove();
+  }
+
+  public static final class Counts {
+    private final Map<String, Integer> selects = new HashMap<>();
+    private int statements;
+    private String mostRepeatedSelect;
+    private int mostRepeatedCount;
+
+    private void record(String sql) {
+      statements++;
+      if (sql.regionMatches(true, 0, "select", 0, 6)) {
+        int count = selects.merge(sql, 1, Integer::sum);
+        if (count > mostRepeatedCount) {
+          mostRepeatedCount = count;
+          mostRepeatedSelect = sql;
+        }
+      }
+    }
+
+    public int statements() {
+      return statements;
+    }
+
+    /** The select run most often so far, or {@code null} if there were none. */
+    public String mostRepeatedSelect() {
+      return mostRepeatedSelect;
+    }
+
+    public int mostRepeatedCount() {
+      return mostRepeatedCount;
+    }
+  }
+}
@@ -0,0 +1,115 @@
+package cloud.dagbok.backend.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hierarchical timing wheel. Level 0 has {@code wheelSize} slots of {@code tickMillis}; each level
+ * above has slots as wide as the whole level below, so three levels of 60 one-second slots cover a
+ * minute, an hour and 60 hours. Scheduling and expiring are O(1) per item; items on higher levels
+ * move down a level when their slot comes up. Deadlines beyond the top level wait in an overflow
+ * list until they are in range.
+ *
+ * <p>{@link #advance} must be called regularly (every tick); items expire up to one tick late.
+ */
+public final class TimingWheel<T> {
+  private final int wheelSize;
+  private final List<Level> levels = new ArrayList<>();
+  private final List<Entry<T>> overflow = new ArrayList<>();
+  private long currentTime;
+  private int size;
+
+  public TimingWheel(long tickMillis, int wheelSize, int levels, long startMillis) {
+    this.wheelSize = wheelSize;
+    long tick = tickMillis;
+    for (int i = 0; i < levels; i++) {
+      this.levels.add(new Level(tick, wheelSize));
+      tick *= wheelSize;
+    }
+    this.currentTime = startMillis;
+  }
+
+  public synchronized void schedule(T item, long deadlineMillis) {
+    size++;
+    place(new Entry<>(item, deadlineMillis));
+  }
+
+  /** Moves the wheel to {@code nowMillis} and returns every item whose deadline has passed. */
+  public synchronized List<T> advance(long nowMillis) {
+    List<T> expired = new ArrayList<>();
+    if (nowMillis < currentTime) {
+      return expired;
+    }
+    currentTime = nowMillis;
+
+    // Empty every due slot first, so nothing is placed back into a slot still holding old entries
+    List<Entry<T>> cascading = new ArrayList<>(overflow);
+    overflow.clear();
+    for (int i = 0; i < levels.size(); i++) {
+      Level level = levels.get(i);
+      long current = currentTime / level.tick;
+      for (int slot = 0; slot < wheelSize; slot++) {
+        List<Entry<T>> entries = level.slots[slot];
+        if (entries == null) {
+          continue;
+        }
+        if (i == 0 && level.slotTime[slot] < current) {
+          entries.forEach(entry -> expired.add(entry.item));
+          level.slots[slot] = null;
+        } else if (i > 0 && level.slotTime[slot] <= current) {
+          cascading.addAll(entries);
+          level.slots[slot] = null;
+        }
+      }
+    }
+    for (Entry<T> entry : cascading) {
+      if (entry.deadline <= currentTime) {
+        expired.add(entry.item);
+      } else {
+        place(entry);
+      }
+    }
+
+    size -= expired.size();
+    return expired;
+  }
+
+  public synchronized int size() {
+    return size;
+  }
+
+  /**
+   * Puts the entry on the lowest level whose range covers it. Keeping each level's slot times
+   * within {@code [current, current + wheelSize)} means two live slot times never share a slot.
+   */
+  private void place(Entry<T> entry) {
+    for (Level level : levels) {
+      long slotTime = entry.deadline / level.tick;
+      if (slotTime < currentTime / level.tick + wheelSize) {
+        int slot = (int) (slotTime % wheelSize);
+        if (level.slots[slot] == null) {
+          level.slots[slot] = new ArrayList<>();
+          level.slotTime[slot] = slotTime;
+        }
+        level.slots[slot].add(entry);
+        return;
+      }
+    }
+    overflow.add(entry);
+  }
+
+  private final class Level {
+    private final long tick;
+    private final List<Entry<T>>[] slots;
+    private final long[] slotTime;
+
+    @SuppressWarnings("unchecked")
+    private Level(long tick, int wheelSize) {
+      this.tick = tick;
+      this.slots = new List[wheelSize];
+      this.slotTime = new long[wheelSize];
+    }
+  }
+
+  private record Entry<T>(T item, long deadline) {}
+}
@@ -0,0 +1,93 @@
+package cloud.dagbok.backend.utils;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Estimates how many tokens a chat model's tokenizer turns a text into, without the model's
+ * vocabulary. Text is split with the pre-tokenization pattern of OpenAI's {@code o200k_base}
+ * encoding, the same first step the real tokenizer takes, and each piece is then costed by shape:
+ * whitespace runs and number groups are one token, words about one per five characters (short
+ * words one), punctuation runs one per two characters. Characters outside the two-byte UTF-8 range
+ * (CJK, emoji) are a token each, as byte-level BPE rarely merges them.
+ *
+ * <p>The result is an estimate that errs high on long, rare words, which is the safe side for
+ * budget reservations and {@code max_tokens}.
+ */
+public final class TokenEstimator {
+  private static final String PREFIX = "[^\\r\\n\\p{L}\\p{N}]?";
+  private static final String UPPER = "[\\p{Lu}\\p{Lt}\\p{Lm}\\p{Lo}\\p{M}]";
+  private static final String LOWER = "[\\p{Ll}\\p{Lm}\\p{Lo}\\p{M}]";
+  private static final String CONTRACTION = "(?i:'s|'t|'re|'ve|'m|'ll|'d)?";
+  private static final Pattern PIECES =
+      Pattern.compile(
+          String.join(
+              "|",
+              PREFIX + UPPER + "*" + LOWER + "+" + CONTRACTION,
+              PREFIX + UPPER + "+" + LOWER + "*" + CONTRACTION,
+              "\\p{N}{1,3}",
+              " ?[^\\s\\p{L}\\p{N}]+[\\r\\n/]*",
+              "\\s*[\\r\\n]+",
+              "\\s+(?!\\S)",
+              "\\s+"));
+
+  /** Role markers and separators the chat format adds around each message. */
+  private static final int TOKENS_PER_MESSAGE = 4;
+
+  /** The assistant reply header the chat format appends after the last message. */
+  private static final int REPLY_PRIMING_TOKENS = 3;
+
+  private TokenEstimator() {}
+
+  public static int count(String text) {
+    if (text == null || text.isEmpty()) {
+      return 0;
+    }
+    int tokens = 0;
+    Matcher matcher = PIECES.matcher(text);
+    while (matcher.find()) {
+      tokens += piece(text, matcher.start(), matcher.end());
+    }
+    return tokens;
+  }
+
+  /** Prompt tokens of a chat request made of one system and one user message. */
+  public static int chatTokens(String system, String user) {
+    return count(system) + count(user) + 2 * TOKENS_PER_MESSAGE + REPLY_PRIMING_TOKENS;
+  }
+
+  private static int piece(String text, int start, int end) {
+    int letters = 0;
+    int digits = 0;
+    int symbols = 0;
+    int wide = 0;
+    for (int i = start; i < end; ) {
+      int c = text.codePointAt(i);
+      i += Character.charCount(c);
+      if (c >= 0x800) {
+        wide++;
+      } else if (Character.isLetter(c) || Character.getType(c) == Character.NON_SPACING_MARK) {
+        letters++;
+      } else if (Character.isDigit(c)) {
+        digits++;
+      } else if (!Character.isWhitespace(c)) {
+        symbols++;
+      }
+    }
+
+    if (wide > 0) {
+      return wide + (letters + 4) / 5;
+    }
+    if (letters > 0) {
+      // A single leading space or symbol is part of the word's first token
+      return Math.max(1, (letters + 4) / 5) + Math.max(0, symbols - 1);
+    }
+    if (digits > 0) {
+      return 1;
+    }
+    if (symbols > 0) {
+      return (symbols + 1) / 2;
+    }
+    return 1;
+  }
+}
@@ -0,0 +1,28 @@
+package cloud.dagbok.backend;
+
+import cloud.dagbok.backend.dto.note.Model;
+import cloud.dagbok.backend.entity.Role;
+import cloud.dagbok.backend.entity.UserEntity;
+import cloud.dagbok.backend.repository.UserRepository;
+import java.util.UUID;
+
+/** Saves users with unique names, so tests sharing the database never see each other's data. */
+public final class TestUsers {
+  private TestUsers() {}
+
+  /** A user on the free model, named {@code prefix-<random>}. Returns their id. */
+  public static UUID create(UserRepository userRepository, String prefix) {
+    return create(userRepository, prefix, Model.MIMO_V2_FLASH);
+  }
+
+  public static UUID create(UserRepository userRepository, String prefix, Model model) {
+    UserEntity user =
+        new UserEntity(
+            null,
+            prefix + "-" + UUID.randomUUID().toString().substring(0, 8),
+            Role.USER,
+            "",
+            model);
+    return userRepository.save(user).getId();
+  }
+}
@@ -0,0 +1,155 @@
+package cloud.dagbok.backend;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.sun.net.httpserver.HttpServer;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+/**
+ * Creates AI notes over HTTP against an OpenRouter stub that takes a second per completion. Tomcat
+ * gets {@value #PLATFORM_LIMIT} threads and Hikari {@value #PLATFORM_LIMIT} connections, so
+ * without virtual threads, or with a connection held during the model call, the requests would
+ * queue behind one another.
+ */
+@SpringBootTest(
+    webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+    properties = {
+      "spring.threads.virtual.enabled=true",
+      "server.tomcat.threads.max=" + VirtualThreadThroughputTest.PLATFORM_LIMIT,
+      "spring.datasource.hikari.maximum-pool-size=" + VirtualThreadThroughputTest.PLATFORM_LIMIT,
+      "openrouter.bulkhead.max-concurrent=100"
+    })
+@ActiveProfiles("test")
+class VirtualThreadThroughputTest {
+  static final int PLATFORM_LIMIT = 4;
+  private static final int REQUESTS = 24;
+  private static final Duration MODEL_LATENCY = Duration.ofSeconds(1);
+
+  private static final AtomicInteger inFlight = new AtomicInteger();
+  private static final AtomicInteger peakInFlight = new AtomicInteger();
+  private static final HttpServer openRouter = startOpenRouterStub();
+
+  private final HttpClient client = HttpClient.newHttpClient();
+
+  @LocalServerPort private int port;
+
+  @DynamicPropertySource
+  static void openRouterUrl(DynamicPropertyRegistry registry) {
+    registry.add(
+        "openrouter.url",
+        () -> "http://localhost:" + openRouter.getAddress().getPort() + "/chat/completions");
+  }
+
+  @AfterAll
+  static void stopOpenRouterStub() {
+    openRouter.stop(0);
+  }
+
+  @Test
+  void slowModelCallsDoNotQueueBehindThreadsOrConnections() throws Exception {
+    String cookie =
+        client
+            .send(send("POST", "/user/demo", "", null), HttpResponse.BodyHandlers.discarding())
+            .headers()
+            .firstValue("Set-Cookie")
+            .orElseThrow()
+            .split(";")[0];
+    // A free model needs no cost reservation, so only the model call is slow
+    String freeModel =
+        """
+        {"model": "xiaomi/mimo-v2-flash:free"}
+        """;
+    assertThat(
+            client
+                .send(
+                    send("PATCH", "/user/model", freeModel, cookie),
+                    HttpResponse.BodyHandlers.discarding())
+                .statusCode())
+        .isEqualTo(200);
+
+    long started = System.nanoTime();
+    List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+    for (int i = 0; i < REQUESTS; i++) {
+      String note =
+          """
+          {"text": "Throughput note %d", "date": "2026-03-04T10:00:00", "prompt": true}
+          """
+              .formatted(i);
+      responses.add(
+          client.sendAsync(
+              send("POST", "/api/notes", note, cookie), HttpResponse.BodyHandlers.ofString()));
+    }
+    for (CompletableFuture<HttpResponse<String>> response : responses) {
+      assertThat(response.get().statusCode()).isEqualTo(201);
+      assertThat(response.get().body()).contains("Generated by the stub");
+    }
+    Duration elapsed = Duration.ofNanos(System.nanoTime() - started);
+
+    // Queued behind PLATFORM_LIMIT workers this would take REQUESTS / PLATFORM_LIMIT seconds
+    assertThat(peakInFlight.get()).isGreaterThan(PLATFORM_LIMIT);
+    assertThat(elapsed).isLessThan(MODEL_LATENCY.multipliedBy(REQUESTS / PLATFORM_LIMIT - 1));
+  }
+
+  private HttpRequest send(String method, String path, String json, String cookie) {
+    HttpRequest.Builder request =
+        HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+            .header("Content-Type", "application/json")
+            .method(method, HttpRequest.BodyPublishers.ofString(json));
+    if (cookie != null) {
+      request.header("Cookie", cookie);
+    }
+    return request.build();
+  }
+
+  private static HttpServer startOpenRouterStub() {
+    try {
+      HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+      server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+      server.createContext(
+          "/chat/completions",
+          exchange -> {
+            peakInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+              exchange.getRequestBody().readAllBytes();
+              Thread.sleep(MODEL_LATENCY);
+              byte[] body =
+                  """
+                  {"choices": [{"message": {"content": "Generated by the stub"}}],
+                   "usage": {"prompt_tokens": 20, "completion_tokens": 5, "total_tokens": 25}}
+                  """
+                      .getBytes(StandardCharsets.UTF_8);
+              exchange.getResponseHeaders().add("Content-Type", "application/json");
+              exchange.sendResponseHeaders(200, body.length);
+              exchange.getResponseBody().write(body);
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+            } finally {
+              inFlight.decrementAndGet();
+              exchange.close();
+            }
+          });
+      server.start();
+      return server;
+    } catch (Exception e) {
+      throw new IllegalStateException("Could not start the OpenRouter stub", e);
+    }
+  }
+}
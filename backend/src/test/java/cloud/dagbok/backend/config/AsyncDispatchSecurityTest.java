@@ -0,0 +1,87 @@
+package cloud.dagbok.backend.config;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.web.context.RequestAttributeSecurityContextRepository;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+/**
+ * Async dispatches are authorized like any other request, using the security context the JWT
+ * filter saved on the original one.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class AsyncDispatchSecurityTest {
+  private static final String NOTE =
+      """
+      {"text": "Streamed note", "date": "2026-03-04T10:00:00", "prompt": false}
+      """;
+
+  @Autowired private MockMvc mockMvc;
+
+  private Cookie token;
+
+  @BeforeEach
+  void logInAsDemoUser() throws Exception {
+    token =
+        mockMvc
+            .perform(post("/user/demo"))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getCookie("accessToken");
+  }
+
+  @Test
+  void streamCompletesOnTheAsyncDispatchOfAnAuthenticatedRequest() throws Exception {
+    MvcResult started = startStream();
+
+    mockMvc
+        .perform(asyncDispatch(started))
+        .andExpect(status().isOk())
+        .andExpect(content().string(containsString("event:note")));
+  }
+
+  @Test
+  void asyncDispatchWithoutTheSavedContextIsRejected() throws Exception {
+    MvcResult started = startStream();
+    started
+        .getRequest()
+        .removeAttribute(RequestAttributeSecurityContextRepository.DEFAULT_REQUEST_ATTR_NAME);
+
+    // The stream has already committed the response, so the denial cannot become a 403
+    assertThatThrownBy(() -> mockMvc.perform(asyncDispatch(started)))
+        .hasCauseInstanceOf(AccessDeniedException.class);
+  }
+
+  private MvcResult startStream() throws Exception {
+    MvcResult started =
+        mockMvc
+            .perform(
+                post("/api/notes/stream")
+                    .cookie(token)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(NOTE))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+    started.getAsyncResult(10_000);
+    return started;
+  }
+}
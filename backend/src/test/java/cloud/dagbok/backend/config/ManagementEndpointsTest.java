@@ -0,0 +1,60 @@
+package cloud.dagbok.backend.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import cloud.dagbok.backend.repository.UserRepository;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalManagementPort;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+
+@SpringBootTest(
+    webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+    properties = "management.server.port=0")
+@ActiveProfiles("test")
+class ManagementEndpointsTest {
+  private final HttpClient client = HttpClient.newHttpClient();
+
+  @LocalServerPort private int serverPort;
+  @LocalManagementPort private int managementPort;
+
+  @Autowired private UserRepository userRepository;
+
+  @Test
+  void metricsAreOnlyServedOnTheManagementPort() throws Exception {
+    assertThat(get(serverPort, "/actuator/prometheus").statusCode()).isNotEqualTo(200);
+    assertThat(get(managementPort, "/actuator/prometheus").statusCode()).isEqualTo(200);
+  }
+
+  @Test
+  void healthStaysPublicOnTheServerPort() throws Exception {
+    HttpResponse<String> health = get(serverPort, "/health");
+
+    assertThat(health.statusCode()).isEqualTo(200);
+    assertThat(health.body()).contains("\"status\":\"UP\"");
+  }
+
+  @Test
+  void repositoryQueriesAreTimedPerMethod() throws Exception {
+    userRepository.findRoleById(UUID.randomUUID());
+
+    assertThat(get(managementPort, "/actuator/prometheus").body())
+        .contains("repository_query_seconds_count{")
+        .containsPattern(
+            "repository_query_seconds_count\\{outcome=\"success\",query=\"findRoleById\","
+                + "repository=\"UserRepository\"}");
+  }
+
+  private HttpResponse<String> get(int port, String path) throws Exception {
+    return client.send(
+        HttpRequest.newBuilder(URI.create("http://localhost:" + port + path)).build(),
+        HttpResponse.BodyHandlers.ofString());
+  }
+}
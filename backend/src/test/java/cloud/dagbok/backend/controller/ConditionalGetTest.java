@@ -0,0 +1,84 @@
+package cloud.dagbok.backend.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.hasItem;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ConditionalGetTest {
+  @Autowired private MockMvc mockMvc;
+
+  private Cookie token;
+
+  @BeforeEach
+  void logInAsDemoUser() throws Exception {
+    token =
+        mockMvc
+            .perform(post("/user/demo"))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getCookie("accessToken");
+  }
+
+  @Test
+  void readsAreNotModifiedUntilTheUserWrites() throws Exception {
+    String eTag = fetch("/api/notes/counts/2026/3", null, 200).getResponse().getHeader("ETag");
+    assertThat(eTag).startsWith("W/");
+
+    MvcResult notModified = fetch("/api/notes/counts/2026/3", eTag, 304);
+    assertThat(notModified.getResponse().getContentLength()).isZero();
+    fetch("/api/notes/range?from=2026-03-01&to=2026-03-31", eTag, 304);
+
+    mockMvc
+        .perform(
+            post("/api/notes")
+                .cookie(token)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(
+                    """
+                    {"text": "New note", "date": "2026-03-04T10:00:00", "prompt": false}
+                    """))
+        .andExpect(status().isCreated());
+
+    MvcResult changed = fetch("/api/notes/counts/2026/3", eTag, 200);
+    assertThat(changed.getResponse().getHeader("ETag")).isNotEqualTo(eTag);
+  }
+
+  @Test
+  void profileIsNotModifiedForItsOwnETag() throws Exception {
+    String eTag = fetch("/user/me", null, 200).getResponse().getHeader("ETag");
+
+    fetch("/user/me", eTag, 304);
+  }
+
+  private MvcResult fetch(String path, String ifNoneMatch, int expectedStatus) throws Exception {
+    var request = get(path).cookie(token);
+    if (ifNoneMatch != null) {
+      request.header(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+    }
+    return mockMvc
+        .perform(request)
+        .andExpect(status().is(expectedStatus))
+        .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache, private"))
+        .andExpect(header().stringValues(HttpHeaders.VARY, hasItem(HttpHeaders.ACCEPT)))
+        .andReturn();
+  }
+}
@@ -0,0 +1,100 @@
+package cloud.dagbok.backend.filter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.BucketConfiguration;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.function.Supplier;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+/** Two stores over the same database stand in for two nodes behind the proxy. */
+@SpringBootTest
+@ActiveProfiles("test")
+class JdbcBucketStoreTest {
+  @Autowired private DataSource dataSource;
+  @Autowired private JdbcTemplate jdbcTemplate;
+
+  private final String key = "test:" + UUID.randomUUID();
+
+  @Test
+  void nodesShareOneBucket() {
+    Bucket first = store(0).resolve(key, capacity(5));
+    Bucket second = store(0).resolve(key, capacity(5));
+
+    assertThat(first.tryConsume(3)).isTrue();
+    assertThat(second.tryConsume(2)).isTrue();
+    assertThat(second.tryConsume(1)).isFalse();
+    assertThat(first.tryConsume(1)).isFalse();
+  }
+
+  @Test
+  void smallBucketsSyncEveryRequestEvenWithUnsyncedTokensConfigured() {
+    Bucket first = store(5).resolve(key, capacity(5));
+    Bucket second = store(5).resolve(key, capacity(5));
+
+    for (int i = 0; i < 5; i++) {
+      assertThat(first.tryConsume(1)).isTrue();
+    }
+    assertThat(second.tryConsume(1)).isFalse();
+  }
+
+  @Test
+  void idleBucketsAreRemoved() {
+    JdbcBucketStore store = store(0);
+    store.resolve(key, capacity(5)).tryConsume(1);
+    jdbcTemplate.update("UPDATE rate_limit_buckets SET updated_at = 0 WHERE id = ?", key);
+
+    store.removeIdleBuckets();
+
+    assertThat(rows()).isZero();
+  }
+
+  @Test
+  void bucketsAreKeptUntilTheLongestRefillPeriodHasPassed() {
+    JdbcBucketStore store =
+        new JdbcBucketStore(
+            dataSource, jdbcTemplate, 0, 500, 1, 10, 90, 1, new SimpleMeterRegistry());
+    store.resolve(key, capacity(5)).tryConsume(1);
+
+    idleFor(Duration.ofMinutes(89));
+    store.removeIdleBuckets();
+    assertThat(rows()).isOne();
+
+    idleFor(Duration.ofMinutes(91));
+    store.removeIdleBuckets();
+    assertThat(rows()).isZero();
+  }
+
+  private JdbcBucketStore store(long maxUnsyncedTokens) {
+    return new JdbcBucketStore(
+        dataSource, jdbcTemplate, maxUnsyncedTokens, 500, 1, 10, 15, 1, new SimpleMeterRegistry());
+  }
+
+  private void idleFor(Duration idle) {
+    jdbcTemplate.update(
+        "UPDATE rate_limit_buckets SET updated_at = ? WHERE id = ?",
+        System.currentTimeMillis() - idle.toMillis(),
+        key);
+  }
+
+  private int rows() {
+    return jdbcTemplate.queryForObject(
+        "SELECT COUNT(*) FROM rate_limit_buckets WHERE id = ?", Integer.class, key);
+  }
+
+  private static Supplier<BucketConfiguration> capacity(long tokens) {
+    return () ->
+        BucketConfiguration.builder()
+            .addLimit(
+                limit -> limit.capacity(tokens).refillIntervally(tokens, Duration.ofMinutes(15)))
+            .build();
+  }
+}
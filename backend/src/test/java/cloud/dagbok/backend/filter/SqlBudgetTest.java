@@ -0,0 +1,135 @@
+package cloud.dagbok.backend.filter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import cloud.dagbok.backend.repository.UserRepository;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.method.HandlerMethod;
+
+/**
+ * Calls every endpoint that declares a {@link SqlBudget}. With {@code
+ * sql.statements.fail-over-budget} set for tests, a request over its budget fails in {@link
+ * SqlStatementFilter}, so a change that adds queries to an endpoint breaks this test.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Import(SqlBudgetTest.OverBudgetController.class)
+class SqlBudgetTest {
+  private static final String NOTE =
+      """
+      {"text": "Planning the release with the team", "date": "2026-03-04T10:00:00", "prompt": false}
+      """;
+
+  @Autowired private MockMvc mockMvc;
+
+  private Cookie token;
+
+  @BeforeEach
+  void logInAsDemoUser() throws Exception {
+    token = within(post("/user/demo"), 200).getResponse().getCookie("accessToken");
+  }
+
+  @Test
+  void noteEndpointsStayWithinBudget() throws Exception {
+    String created =
+        within(post("/api/notes").contentType(MediaType.APPLICATION_JSON).content(NOTE), 201)
+            .getResponse()
+            .getContentAsString();
+    String noteId = created.replaceAll(".*\"id\":\"([^\"]+)\".*", "$1");
+
+    within(
+        put("/api/notes")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"id\": \"" + noteId + "\", \"text\": \"Release moved to Friday\"}"),
+        200);
+    within(get("/api/notes/user").param("date", "2026-03-04"), 200);
+    within(get("/api/notes/range").param("from", "2026-03-01").param("to", "2026-03-31"), 200);
+    within(get("/api/notes/user/search").param("q", "release friday"), 200);
+    within(get("/api/notes/counts/2026/3"), 200);
+    within(delete("/api/notes/" + noteId), 200);
+  }
+
+  @Test
+  void userEndpointsStayWithinBudget() throws Exception {
+    within(get("/user/me"), 200);
+    within(
+        put("/user/prompt")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"newPrompt\": \"Be brief\"}"),
+        200);
+    within(
+        patch("/user/model")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"model\": \"xiaomi/mimo-v2-flash:free\"}"),
+        200);
+    within(post("/user/logout"), 200);
+
+    String credentials = "{\"username\": \"budget-user\", \"password\": \"correct-horse\"}";
+    within(
+        post("/user/register").contentType(MediaType.APPLICATION_JSON).content(credentials), 201);
+    within(post("/user/login").contentType(MediaType.APPLICATION_JSON).content(credentials), 200);
+  }
+
+  @Test
+  void requestOverItsBudgetFails() {
+    assertThatThrownBy(() -> mockMvc.perform(get("/api/public/over-budget")))
+        .isInstanceOf(IllegalStateException.class)
+        .hasMessageContaining("over its budget of 0");
+  }
+
+  /**
+   * Performs the request as the demo user and checks its status. The filter has already failed
+   * the request if it went over budget; the header check also catches an endpoint whose budget
+   * annotation went missing.
+   */
+  private MvcResult within(MockHttpServletRequestBuilder request, int expectedStatus)
+      throws Exception {
+    if (token != null) {
+      request.cookie(token);
+    }
+    MvcResult result = mockMvc.perform(request).andExpect(status().is(expectedStatus)).andReturn();
+
+    assertThat(result.getHandler()).isInstanceOf(HandlerMethod.class);
+    SqlBudget budget = ((HandlerMethod) result.getHandler()).getMethodAnnotation(SqlBudget.class);
+    assertThat(budget).as("@SqlBudget on %s", result.getHandler()).isNotNull();
+    assertThat(Integer.parseInt(result.getResponse().getHeader(SqlStatementFilter.HEADER)))
+        .isLessThanOrEqualTo(budget.value());
+    return result;
+  }
+
+  @RestController
+  static class OverBudgetController {
+    private final UserRepository userRepository;
+
+    OverBudgetController(UserRepository userRepository) {
+      this.userRepository = userRepository;
+    }
+
+    @GetMapping("/api/public/over-budget")
+    @SqlBudget(0)
+    long overBudget() {
+      return userRepository.count();
+    }
+  }
+}
@@ -0,0 +1,107 @@
+package cloud.dagbok.backend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+import cloud.dagbok.backend.TestUsers;
+import cloud.dagbok.backend.dto.note.Model;
+import cloud.dagbok.backend.dto.note.NoteCreateRequest;
+import cloud.dagbok.backend.entity.CostLedgerEntity;
+import cloud.dagbok.backend.entity.UserEntity;
+import cloud.dagbok.backend.exceptionHandler.MonthlyCostLimitExceededException;
+import cloud.dagbok.backend.repository.CostLedgerRepository;
+import cloud.dagbok.backend.repository.UserRepository;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class CostLedgerServiceTest {
+  @Autowired private CostLedgerService costLedgerService;
+  @Autowired private CostLedgerRepository costLedgerRepository;
+  @Autowired private UserRepository userRepository;
+  @Autowired private JdbcTemplate jdbcTemplate;
+  @Autowired private NoteService noteService;
+
+  private UUID userId;
+
+  @BeforeEach
+  void createUser() {
+    userId = TestUsers.create(userRepository, "ledger");
+  }
+
+  @Test
+  void releasesReservationsOlderThanTheTtl() {
+    costLedgerService.reserve(userId, 0.002);
+    costLedgerService.reserve(userId, 0.003);
+    costLedgerService.releaseStale();
+    assertThat(ledger().getReservedUsd()).isCloseTo(0.005, within(1e-9));
+
+    moveReservationsBack(11);
+    costLedgerService.releaseStale();
+
+    assertThat(ledger().getReservedUsd()).isZero();
+    assertThat(ledger().getReservedAt()).isNull();
+  }
+
+  @Test
+  void settlingAReleasedReservationStillCountsTheCost() {
+    CostLedgerService.Reservation reservation = costLedgerService.reserve(userId, 0.004);
+    moveReservationsBack(11);
+    costLedgerService.releaseStale();
+
+    costLedgerService.settle(reservation, 0.0025);
+
+    assertThat(ledger().getReservedUsd()).isZero();
+    assertThat(ledger().getSpentUsd()).isEqualTo(0.0025);
+    assertThat(userRepository.findById(userId).orElseThrow().getMonthlyCost()).isEqualTo(0.0025);
+  }
+
+  @Test
+  void generationOverBudgetIsRefusedByDefault() {
+    UUID paidId = TestUsers.create(userRepository, "ledger", Model.GPT_4O_MINI);
+    costLedgerService.reserve(paidId, MonthlyCostLimitExceededException.LIMIT);
+
+    assertThatThrownBy(
+            () ->
+                noteService.createNewUserNote(
+                    new NoteCreateRequest("Over budget", LocalDateTime.of(2026, 3, 4, 10, 0), true),
+                    paidId))
+        .isInstanceOf(MonthlyCostLimitExceededException.class);
+  }
+
+  @Test
+  void savingAStaleUserKeepsTheCostAddedMeanwhile() {
+    UserEntity stale = userRepository.findById(userId).orElseThrow();
+    jdbcTemplate.update(
+        "UPDATE users SET total_costusd = total_costusd + ? WHERE id = ?", 0.0025, userId);
+
+    stale.setPrompt("Be brief");
+    userRepository.save(stale);
+
+    UserEntity saved = userRepository.findById(userId).orElseThrow();
+    assertThat(saved.getPrompt()).isEqualTo("Be brief");
+    assertThat(saved.getTotalCostUSD()).isEqualTo(0.0025);
+  }
+
+  private void moveReservationsBack(int minutes) {
+    jdbcTemplate.update(
+        "UPDATE cost_ledger SET reserved_at = DATEADD('MINUTE', ?, reserved_at) WHERE user_id = ?",
+        -minutes,
+        userId);
+  }
+
+  private CostLedgerEntity ledger() {
+    return costLedgerRepository
+        .findByUserIdAndPeriod(userId, YearMonth.now().toString())
+        .orElseThrow();
+  }
+}
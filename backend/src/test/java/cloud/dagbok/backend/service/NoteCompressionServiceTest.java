@@ -0,0 +1,71 @@
+package cloud.dagbok.backend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import cloud.dagbok.backend.TestUsers;
+import cloud.dagbok.backend.dto.note.NoteCreateRequest;
+import cloud.dagbok.backend.entity.NoteTextConverter;
+import cloud.dagbok.backend.repository.NoteRepository;
+import cloud.dagbok.backend.repository.UserRepository;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+@SpringBootTest(properties = {"notes.compression.enabled=true", "notes.compression.min-length=256"})
+@ActiveProfiles("test")
+class NoteCompressionServiceTest {
+  @Autowired private NoteCompressionService noteCompressionService;
+  @Autowired private NoteService noteService;
+  @Autowired private NoteRepository noteRepository;
+  @Autowired private UserRepository userRepository;
+  @Autowired private JdbcTemplate jdbcTemplate;
+
+  private UUID userId;
+
+  @BeforeEach
+  void createUser() {
+    userId = TestUsers.create(userRepository, "compress");
+  }
+
+  @Test
+  void notesWrittenBeforeCompressionAreReencodedOnlyOnce() {
+    UUID noteId = create("Walked the dog along the river. ".repeat(20));
+    String text = noteRepository.findById(noteId).orElseThrow().getText();
+    // As stored while notes.compression.enabled was still off
+    jdbcTemplate.update("UPDATE notes SET text = ? WHERE id = ?", text, noteId);
+
+    assertThat(noteCompressionService.reencode()).isEqualTo(1);
+    String compressed = stored(noteId);
+    assertThat(compressed).startsWith(String.valueOf(NoteTextConverter.COMPRESSED));
+    assertThat(compressed.length()).isLessThan(text.length());
+    assertThat(noteRepository.findById(noteId).orElseThrow().getText()).isEqualTo(text);
+
+    // The next boot finds nothing left to do
+    assertThat(noteCompressionService.reencode()).isZero();
+    assertThat(stored(noteId)).isEqualTo(compressed);
+  }
+
+  @Test
+  void shortNotesStayPlain() {
+    UUID noteId = create("Short day");
+
+    assertThat(noteCompressionService.reencode()).isZero();
+    assertThat(stored(noteId)).startsWith("Short day");
+  }
+
+  private String stored(UUID noteId) {
+    return jdbcTemplate.queryForObject("SELECT text FROM notes WHERE id = ?", String.class, noteId);
+  }
+
+  private UUID create(String text) {
+    return noteService
+        .createNewUserNote(
+            new NoteCreateRequest(text, LocalDateTime.of(2026, 3, 4, 10, 0), false), userId)
+        .id();
+  }
+}
@@ -0,0 +1,103 @@
+package cloud.dagbok.backend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import cloud.dagbok.backend.TestUsers;
+import cloud.dagbok.backend.dto.note.NoteCreateRequest;
+import cloud.dagbok.backend.dto.note.NotesCountByDate;
+import cloud.dagbok.backend.repository.UserRepository;
+import java.time.LocalDate;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.IllegalTransactionStateException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class NoteDayCountServiceTest {
+  private static final LocalDate MARCH_4 = LocalDate.of(2026, 3, 4);
+  private static final LocalDate MARCH_5 = LocalDate.of(2026, 3, 5);
+
+  @Autowired private NoteDayCountService noteDayCountService;
+  @Autowired private NoteService noteService;
+  @Autowired private DataVersionService dataVersionService;
+  @Autowired private UserRepository userRepository;
+  @Autowired private JdbcTemplate jdbcTemplate;
+  @Autowired private PlatformTransactionManager transactionManager;
+
+  private UUID userId;
+
+  @BeforeEach
+  void createUser() {
+    userId = TestUsers.create(userRepository, "counts");
+  }
+
+  @Test
+  void countsFollowCreatedAndDeletedNotes() {
+    create(MARCH_4);
+    UUID deleted = create(MARCH_4);
+    create(MARCH_5);
+    noteService.deleteNote(deleted, userId);
+
+    assertThat(noteDayCountService.countsForMonth(userId, 2026, 3))
+        .containsExactly(new NotesCountByDate(MARCH_4, 1L), new NotesCountByDate(MARCH_5, 1L));
+  }
+
+  @Test
+  void backfillRebuildsCountsOfUsersNotMarkedComplete() {
+    create(MARCH_4);
+    create(MARCH_4);
+    create(MARCH_5);
+    jdbcTemplate.update("UPDATE note_day_counts SET note_count = 7 WHERE user_id = ?", userId);
+    jdbcTemplate.update("UPDATE users SET day_counts_backfilled = FALSE WHERE id = ?", userId);
+
+    noteDayCountService.backfill();
+
+    assertThat(noteDayCountService.countsForMonth(userId, 2026, 3))
+        .containsExactly(new NotesCountByDate(MARCH_4, 2L), new NotesCountByDate(MARCH_5, 1L));
+    assertThat(
+            jdbcTemplate.queryForObject(
+                "SELECT day_counts_backfilled FROM users WHERE id = ?", Boolean.class, userId))
+        .isTrue();
+  }
+
+  @Test
+  void backfillLeavesUsersMarkedCompleteAlone() {
+    create(MARCH_4);
+    jdbcTemplate.update("UPDATE note_day_counts SET note_count = 7 WHERE user_id = ?", userId);
+
+    noteDayCountService.backfill();
+
+    assertThat(noteDayCountService.countsForMonth(userId, 2026, 3))
+        .containsExactly(new NotesCountByDate(MARCH_4, 7L));
+  }
+
+  @Test
+  void countsAreWrittenInTheCallersTransaction() {
+    new TransactionTemplate(transactionManager)
+        .executeWithoutResult(
+            status -> {
+              dataVersionService.bump(userId);
+              noteDayCountService.increment(userId, MARCH_4);
+              status.setRollbackOnly();
+            });
+
+    assertThat(noteDayCountService.countsForMonth(userId, 2026, 3)).isEmpty();
+    assertThatThrownBy(() -> noteDayCountService.increment(userId, MARCH_4))
+        .isInstanceOf(IllegalTransactionStateException.class);
+  }
+
+  private UUID create(LocalDate date) {
+    return noteService
+        .createNewUserNote(
+            new NoteCreateRequest("Note of " + date, date.atTime(10, 0), false), userId)
+        .id();
+  }
+}
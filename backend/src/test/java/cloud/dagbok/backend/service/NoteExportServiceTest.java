@@ -0,0 +1,93 @@
+package cloud.dagbok.backend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import cloud.dagbok.backend.TestUsers;
+import cloud.dagbok.backend.dto.note.NoteCreateRequest;
+import cloud.dagbok.backend.exceptionHandler.ExportBusyException;
+import cloud.dagbok.backend.repository.UserRepository;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+@SpringBootTest(properties = "notes.export.max-concurrent=2")
+@ActiveProfiles("test")
+class NoteExportServiceTest {
+  @Autowired private NoteExportService noteExportService;
+  @Autowired private NoteService noteService;
+  @Autowired private UserRepository userRepository;
+
+  private UUID userId;
+
+  @BeforeEach
+  void createUser() {
+    userId = TestUsers.create(userRepository, "export");
+  }
+
+  @Test
+  void ndjsonExportEndsWithANewlineAndLeavesTheStreamOpen() throws Exception {
+    create("First", LocalDateTime.of(2026, 3, 4, 10, 0));
+    create("Second", LocalDateTime.of(2026, 3, 5, 10, 0));
+    ClosingTrackingStream out = new ClosingTrackingStream();
+
+    assertThat(noteExportService.exportNdjson(userId, out)).isEqualTo(2);
+
+    String body = out.toString(StandardCharsets.UTF_8);
+    assertThat(out.closed).isFalse();
+    assertThat(body).endsWith("}\n");
+    assertThat(body.lines().toList())
+        .hasSize(2)
+        .satisfies(lines -> assertThat(lines.get(0)).contains("\"text\":\"First\\n"));
+  }
+
+  @Test
+  void emptyNdjsonExportWritesNothing() throws Exception {
+    ClosingTrackingStream out = new ClosingTrackingStream();
+
+    assertThat(noteExportService.exportNdjson(userId, out)).isZero();
+    assertThat(out.size()).isZero();
+  }
+
+  @Test
+  void exportsBeyondTheLimitAreRefusedUntilASlotIsReturned() {
+    List<NoteExportService.Slot> slots = new ArrayList<>();
+    slots.add(noteExportService.acquireSlot());
+    slots.add(noteExportService.acquireSlot());
+
+    assertThatThrownBy(noteExportService::acquireSlot).isInstanceOf(ExportBusyException.class);
+
+    slots.removeFirst().close();
+    slots.add(noteExportService.acquireSlot());
+    slots.forEach(NoteExportService.Slot::close);
+  }
+
+  private void create(String text, LocalDateTime date) {
+    noteService.createNewUserNote(new NoteCreateRequest(text, date, false), userId);
+  }
+
+  private static final class ClosingTrackingStream extends ByteArrayOutputStream {
+    private boolean closed;
+
+    @Override
+    public void close() {
+      closed = true;
+    }
+
+    @Override
+    public void write(int b) {
+      if (closed) {
+        throw new IllegalStateException("Written after close");
+      }
+      super.write(b);
+    }
+  }
+}
@@ -0,0 +1,79 @@
+package cloud.dagbok.backend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import cloud.dagbok.backend.TestUsers;
+import cloud.dagbok.backend.dto.note.NoteCreateRequest;
+import cloud.dagbok.backend.dto.note.NoteItem;
+import cloud.dagbok.backend.entity.NoteEntity;
+import cloud.dagbok.backend.entity.UserEntity;
+import cloud.dagbok.backend.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+/** Counts what Hibernate loads per call, so an eager association or entity hydration shows up. */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("test")
+class NoteFetchStatisticsTest {
+  @Autowired private NoteService noteService;
+  @Autowired private NoteSearchService noteSearchService;
+  @Autowired private UserRepository userRepository;
+  @Autowired private EntityManagerFactory entityManagerFactory;
+
+  private Statistics statistics;
+  private UUID userId;
+
+  @BeforeEach
+  void createUser() {
+    statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    userId = TestUsers.create(userRepository, "stats");
+  }
+
+  @Test
+  void updateAndDeleteLoadTheNoteWithoutItsUser() {
+    UUID noteId = create("Morning run");
+
+    statistics.clear();
+    noteService.updateUserNote(noteId, "Evening run", userId);
+    noteService.deleteNote(noteId, userId);
+
+    assertThat(loads(UserEntity.class)).isZero();
+    assertThat(statistics.getEntityFetchCount()).isZero();
+    assertThat(loads(NoteEntity.class)).isEqualTo(2);
+  }
+
+  @Test
+  void searchHydratesHitsWithoutLoadingEntities() {
+    UUID first = create("Garden plans for spring");
+    UUID second = create("Spring garden, tomatoes and beans");
+
+    statistics.clear();
+    assertThat(noteSearchService.search(userId, "garden", null, 10).notes())
+        .extracting(NoteItem::id)
+        .containsExactlyInAnyOrder(first, second);
+
+    assertThat(loads(NoteEntity.class)).isZero();
+    assertThat(loads(UserEntity.class)).isZero();
+    // Term statistics, ranking and one (id, text) select for the page
+    assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+  }
+
+  private long loads(Class<?> entity) {
+    return statistics.getEntityStatistics(entity.getName()).getLoadCount();
+  }
+
+  private UUID create(String text) {
+    return noteService
+        .createNewUserNote(
+            new NoteCreateRequest(text, LocalDateTime.of(2026, 3, 4, 10, 0), false), userId)
+        .id();
+  }
+}
@@ -0,0 +1,82 @@
+package cloud.dagbok.backend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import cloud.dagbok.backend.TestUsers;
+import cloud.dagbok.backend.dto.note.NoteImportResponse;
+import cloud.dagbok.backend.repository.UserRepository;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class NoteImportServiceTest {
+  @Autowired private NoteImportService noteImportService;
+  @Autowired private UserRepository userRepository;
+  @Autowired private JdbcTemplate jdbcTemplate;
+
+  private UUID userId;
+
+  @BeforeEach
+  void createUser() {
+    userId = TestUsers.create(userRepository, "import");
+  }
+
+  @Test
+  void notesThatDoNotMapAreSkippedAndTheRestImported() {
+    NoteImportResponse result =
+        importNotes(
+            """
+            {"text": "First", "date": "2026-03-04"}
+            {"text": "Bad date", "date": "2026-13-45"}
+            {"text": {"nested": true}, "date": "2026-03-04"}
+            {"date": "2026-03-04"}
+            {"text": "Last", "date": "2026-03-05"}
+            """);
+
+    assertThat(result).isEqualTo(new NoteImportResponse(2, 3));
+    assertThat(notes()).isEqualTo(2);
+  }
+
+  @Test
+  void invalidDatesInAnArrayAreSkippedToo() {
+    NoteImportResponse result =
+        importNotes(
+            """
+            [{"text": "First", "date": "not a date"}, {"text": "Second", "date": "2026-03-04"}]
+            """);
+
+    assertThat(result).isEqualTo(new NoteImportResponse(1, 1));
+  }
+
+  @Test
+  void malformedJsonStopsTheImportWithItsLine() {
+    assertThatThrownBy(
+            () ->
+                importNotes(
+                    """
+                    {"text": "First", "date": "2026-03-04"}
+                    {"text": "Broken", "date":
+                    """))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageStartingWith("Malformed import at line ");
+  }
+
+  private NoteImportResponse importNotes(String body) {
+    return noteImportService.importNotes(
+        userId, new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+  }
+
+  private int notes() {
+    return jdbcTemplate.queryForObject(
+        "SELECT COUNT(*) FROM notes WHERE user_id = ?", Integer.class, userId);
+  }
+}
@@ -0,0 +1,183 @@
+package cloud.dagbok.backend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+
+import cloud.dagbok.backend.TestUsers;
+import cloud.dagbok.backend.dto.note.NoteCreateRequest;
+import cloud.dagbok.backend.dto.note.NoteItem;
+import cloud.dagbok.backend.dto.note.NoteSearchResponse;
+import cloud.dagbok.backend.repository.NoteRepository;
+import cloud.dagbok.backend.repository.NoteTermRepository;
+import cloud.dagbok.backend.repository.SchedulerLockRepository;
+import cloud.dagbok.backend.repository.UserRepository;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.transaction.PlatformTransactionManager;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class NoteSearchServiceTest {
+  @Autowired private NoteService noteService;
+  @Autowired private NoteSearchService noteSearchService;
+  @Autowired private UserRepository userRepository;
+  @Autowired private NoteRepository noteRepository;
+  @Autowired private NoteTermRepository noteTermRepository;
+  @Autowired private SchedulerLockRepository schedulerLockRepository;
+  @Autowired private PlatformTransactionManager transactionManager;
+  @Autowired private JdbcTemplate jdbcTemplate;
+  @MockitoSpyBean private DataVersionService dataVersionService;
+
+  private UUID userId;
+
+  @BeforeEach
+  void createUser() {
+    userId = TestUsers.create(userRepository, "search");
+  }
+
+  @Test
+  void ranksNotesContainingEveryTermByRelevance() {
+    UUID once = create("Release planning with the team");
+    UUID often = create("Release notes: the release went out, release party on Friday");
+    create("Team lunch, nothing about shipping");
+
+    NoteSearchResponse result = noteSearchService.search(userId, "release team", null, 10);
+    assertThat(result.notes()).extracting(NoteItem::id).containsExactly(once);
+
+    result = noteSearchService.search(userId, "release", null, 10);
+    assertThat(result.notes()).extracting(NoteItem::id).containsExactly(often, once);
+    assertThat(result.total()).isEqualTo(2);
+  }
+
+  @Test
+  void matchesTermsAsPrefixes() {
+    UUID note = create("Deployed the backend twice");
+
+    assertThat(noteSearchService.search(userId, "deploy back", null, 10).notes())
+        .extracting(NoteItem::id)
+        .containsExactly(note);
+    assertThat(noteSearchService.search(userId, "deploys", null, 10).notes()).isEmpty();
+  }
+
+  @Test
+  void doesNotMatchInsideWords() {
+    create("Deployed the backend twice");
+
+    assertThat(noteSearchService.search(userId, "ploy", null, 10).notes()).isEmpty();
+    assertThat(noteSearchService.search(userId, "end", null, 10).notes()).isEmpty();
+  }
+
+  @Test
+  void ignoresOneCharacterWords() {
+    UUID note = create("Plan a trip to Oslo");
+
+    assertThat(noteSearchService.search(userId, "a", null, 10).notes()).isEmpty();
+    assertThat(noteSearchService.search(userId, "a trip", null, 10).notes())
+        .extracting(NoteItem::id)
+        .containsExactly(note);
+  }
+
+  @Test
+  void backfillIndexesMissingNotesOnceAndOnlyOnTheLockHolder() {
+    UUID note = create("Backfilled standup notes");
+    noteSearchService.remove(note);
+    LeaderLockService otherNode =
+        new LeaderLockService(schedulerLockRepository, transactionManager);
+
+    assertThat(otherNode.tryAcquire("search-backfill", Duration.ofMinutes(1))).isTrue();
+    assertThat(noteSearchService.backfill()).isZero();
+    assertThat(noteSearchService.search(userId, "backfilled", null, 10).notes()).isEmpty();
+
+    otherNode.release("search-backfill");
+    assertThat(noteSearchService.backfill()).isPositive();
+    assertThat(noteSearchService.backfill()).isZero();
+    assertThat(noteSearchService.search(userId, "backfilled", null, 10).notes())
+        .extracting(NoteItem::id)
+        .containsExactly(note);
+    assertThat(
+            jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM note_terms WHERE note_id = ? AND term = 'standup'",
+                Integer.class,
+                note))
+        .isEqualTo(1);
+  }
+
+  @Test
+  void leavesOutDeletedNotesAndOtherUsersNotes() {
+    UUID kept = create("Garden: planted tomatoes");
+    UUID deleted = create("Garden: planted basil");
+    noteService.deleteNote(deleted, userId);
+
+    UUID otherUser = userId;
+    createUser();
+    create("Garden: planted chili");
+
+    assertThat(noteSearchService.search(otherUser, "garden planted", null, 10).notes())
+        .extracting(NoteItem::id)
+        .containsExactly(kept);
+  }
+
+  @Test
+  void pagesThroughResultsWithTheCursor() {
+    for (int i = 0; i < 5; i++) {
+      create("Standup " + i);
+    }
+
+    NoteSearchResponse first = noteSearchService.search(userId, "standup", null, 2);
+    NoteSearchResponse second = noteSearchService.search(userId, "standup", first.nextCursor(), 2);
+    NoteSearchResponse third = noteSearchService.search(userId, "standup", second.nextCursor(), 2);
+
+    assertThat(first.notes()).hasSize(2);
+    assertThat(second.notes()).hasSize(2).doesNotContainAnyElementsOf(first.notes());
+    assertThat(third.notes()).hasSize(1).doesNotContainAnyElementsOf(second.notes());
+    assertThat(third.nextCursor()).isNull();
+    assertThat(List.of(first.total(), second.total(), third.total())).containsOnly(5L);
+  }
+
+  @Test
+  void pageAfterCursorStartsBelowItsScore() {
+    UUID best = create("Retro: retro notes from the retro");
+    UUID next = create("Retro went well");
+
+    NoteSearchResponse first = noteSearchService.search(userId, "retro", null, 1);
+    NoteSearchResponse second = noteSearchService.search(userId, "retro", first.nextCursor(), 1);
+
+    assertThat(first.notes()).extracting(NoteItem::id).containsExactly(best);
+    assertThat(second.notes()).extracting(NoteItem::id).containsExactly(next);
+    assertThat(second.nextCursor()).isNull();
+  }
+
+  @Test
+  void noteIsNotStoredWhenAnyOfItsWritesFails() {
+    doThrow(new IllegalStateException("version bump failed")).when(dataVersionService).bump(any());
+
+    assertThatThrownBy(() -> create("Never stored")).hasMessage("version bump failed");
+
+    LocalDate march = LocalDate.of(2026, 3, 1);
+    assertThat(
+            noteRepository.findByDateRange(userId, march, march.plusMonths(1), Pageable.unpaged()))
+        .isEmpty();
+    assertThat(noteTermRepository.findSearchStats(userId, List.of("stored")).documentFrequencies())
+        .containsExactly(0L);
+  }
+
+  private UUID create(String text) {
+    return noteService
+        .createNewUserNote(
+            new NoteCreateRequest(text, LocalDateTime.of(2026, 3, 4, 10, 0), false), userId)
+        .id();
+  }
+}
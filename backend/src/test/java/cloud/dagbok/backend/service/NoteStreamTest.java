@@ -0,0 +1,93 @@
+package cloud.dagbok.backend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import cloud.dagbok.backend.TestUsers;
+import cloud.dagbok.backend.dto.note.NoteCreateRequest;
+import cloud.dagbok.backend.exceptionHandler.IncompleteStreamException;
+import cloud.dagbok.backend.repository.UserRepository;
+import com.sun.net.httpserver.HttpServer;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+/** Streams a note from an OpenRouter stub whose stream stops before the model has finished. */
+@SpringBootTest
+@ActiveProfiles("test")
+class NoteStreamTest {
+  private static final HttpServer openRouter = startOpenRouterStub();
+
+  @Autowired private NoteService noteService;
+  @Autowired private UserRepository userRepository;
+  @Autowired private JdbcTemplate jdbcTemplate;
+
+  @DynamicPropertySource
+  static void openRouterUrl(DynamicPropertyRegistry registry) {
+    registry.add(
+        "openrouter.url",
+        () -> "http://localhost:" + openRouter.getAddress().getPort() + "/chat/completions");
+  }
+
+  @AfterAll
+  static void stopOpenRouterStub() {
+    openRouter.stop(0);
+  }
+
+  @Test
+  void cutOffStreamFailsWithoutSavingTheNote() {
+    UUID userId = TestUsers.create(userRepository, "stream");
+    List<String> deltas = new ArrayList<>();
+
+    assertThatThrownBy(
+            () ->
+                noteService.streamNewUserNote(
+                    new NoteCreateRequest("Cut off", LocalDateTime.of(2026, 3, 4, 10, 0), true),
+                    userId,
+                    estimate -> {},
+                    deltas::add))
+        .isInstanceOf(IncompleteStreamException.class);
+
+    assertThat(deltas).containsExactly("Half of the");
+    assertThat(
+            jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM notes WHERE user_id = ?", Integer.class, userId))
+        .isZero();
+  }
+
+  private static HttpServer startOpenRouterStub() {
+    try {
+      HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+      server.createContext(
+          "/chat/completions",
+          exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            byte[] body =
+                """
+                data: {"choices": [{"delta": {"content": "Half of the"}}]}
+
+                """
+                    .getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "text/event-stream");
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+          });
+      server.start();
+      return server;
+    } catch (Exception e) {
+      throw new IllegalStateException("Could not start the OpenRouter stub", e);
+    }
+  }
+}
@@ -0,0 +1,85 @@
+package cloud.dagbok.backend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import cloud.dagbok.backend.utils.PromptUtil.ChatResult;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class OpenRouterServiceTest {
+  private static final String MODEL = "xiaomi/mimo-v2-flash:free";
+
+  private final AtomicInteger calls = new AtomicInteger();
+  private HttpServer openRouter;
+  private OpenRouterService openRouterService;
+
+  @BeforeEach
+  void startOpenRouterStub() throws Exception {
+    openRouter = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    openRouter.createContext(
+        "/chat/completions",
+        exchange -> {
+          exchange.getRequestBody().readAllBytes();
+          byte[] body =
+              """
+              {"choices": [{"message": {"content": "Generated %d"}}],
+               "usage": {"prompt_tokens": 20, "completion_tokens": 5, "total_tokens": 25}}
+              """
+                  .formatted(calls.incrementAndGet())
+                  .getBytes(StandardCharsets.UTF_8);
+          exchange.getResponseHeaders().add("Content-Type", "application/json");
+          exchange.sendResponseHeaders(200, body.length);
+          exchange.getResponseBody().write(body);
+          exchange.close();
+        });
+    openRouter.start();
+    openRouterService =
+        new OpenRouterService(
+            HttpClient.newHttpClient(),
+            "test-key",
+            "http://localhost:" + openRouter.getAddress().getPort() + "/chat/completions",
+            10,
+            8,
+            2000,
+            5,
+            30,
+            1000,
+            10,
+            new SimpleMeterRegistry());
+  }
+
+  @AfterEach
+  void stopOpenRouterStub() {
+    openRouter.stop(0);
+  }
+
+  @Test
+  void sameRequestBySameUserIsServedFromTheCache() {
+    UUID userId = UUID.randomUUID();
+
+    ChatResult first = openRouterService.chat(userId, MODEL, "Be brief", "Same note");
+    ChatResult second = openRouterService.chat(userId, MODEL, "Be brief", "Same note");
+
+    assertThat(calls.get()).isEqualTo(1);
+    assertThat(second.text()).isEqualTo(first.text());
+    assertThat(second.totalTokens()).isZero();
+  }
+
+  @Test
+  void resultsAreNotSharedBetweenUsers() {
+    ChatResult first = openRouterService.chat(UUID.randomUUID(), MODEL, "Be brief", "Same note");
+    ChatResult other = openRouterService.chat(UUID.randomUUID(), MODEL, "Be brief", "Same note");
+
+    assertThat(calls.get()).isEqualTo(2);
+    assertThat(other.text()).isNotEqualTo(first.text());
+    assertThat(other.totalTokens()).isEqualTo(25);
+  }
+}
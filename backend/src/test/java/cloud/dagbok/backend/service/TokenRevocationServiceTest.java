@@ -0,0 +1,100 @@
+package cloud.dagbok.backend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import cloud.dagbok.backend.entity.TokenRevocationEntity;
+import cloud.dagbok.backend.repository.TokenRevocationRepository;
+import jakarta.servlet.http.Cookie;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Revocation through the filter of a running app, and between nodes. A second node is a separate
+ * {@link TokenRevocationService} on the same table, writing rows the way {@code revoke} does.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class TokenRevocationServiceTest {
+  @Autowired private MockMvc mockMvc;
+  @Autowired private TokenRevocationRepository tokenRevocationRepository;
+  @Autowired private PlatformTransactionManager transactionManager;
+
+  @Test
+  void loggedOutTokenIsRejectedByTheFilter() throws Exception {
+    Cookie token =
+        mockMvc
+            .perform(post("/user/demo"))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getCookie("accessToken");
+    mockMvc.perform(get("/user/me").cookie(token)).andExpect(status().isOk());
+
+    mockMvc.perform(post("/user/logout").cookie(token)).andExpect(status().isOk());
+
+    mockMvc
+        .perform(get("/user/me").cookie(token))
+        .andExpect(status().isUnauthorized())
+        .andExpect(status().reason("Token revoked"));
+  }
+
+  @Test
+  void pollPicksUpTokensRevokedOnAnotherNode() {
+    TokenRevocationService node = new TokenRevocationService(tokenRevocationRepository, 16);
+    node.poll();
+    String tokenId = UUID.randomUUID().toString();
+    assertThat(node.isRevoked(tokenId)).isFalse();
+
+    writeRevocation(tokenId, System.currentTimeMillis() + 60_000);
+    node.poll();
+
+    assertThat(node.isRevoked(tokenId)).isTrue();
+  }
+
+  @Test
+  void pruneForgetsExpiredTokensAndKeepsLiveOnes() throws Exception {
+    // More tokens than the expected size, so the Bloom filter has been rebuilt larger on the way
+    TokenRevocationService node = new TokenRevocationService(tokenRevocationRepository, 4);
+    long now = System.currentTimeMillis();
+    List<String> live = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      live.add(UUID.randomUUID().toString());
+      writeRevocation(live.getLast(), now + 60_000);
+    }
+    String expiring = UUID.randomUUID().toString();
+    long expiresAt = now + 200;
+    writeRevocation(expiring, expiresAt);
+    node.poll();
+    assertThat(node.isRevoked(expiring)).isTrue();
+
+    while (System.currentTimeMillis() <= expiresAt) {
+      Thread.sleep(10);
+    }
+    new TransactionTemplate(transactionManager).executeWithoutResult(status -> node.prune());
+
+    assertThat(node.isRevoked(expiring)).isFalse();
+    assertThat(live).allMatch(node::isRevoked);
+    assertThat(tokenRevocationRepository.findAll())
+        .extracting(TokenRevocationEntity::getTokenId)
+        .doesNotContain(expiring)
+        .containsAll(live);
+  }
+
+  private void writeRevocation(String tokenId, long expiresAt) {
+    tokenRevocationRepository.save(
+        new TokenRevocationEntity(tokenId, expiresAt, System.currentTimeMillis()));
+  }
+}
@@ -0,0 +1,90 @@
+package cloud.dagbok.backend.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import cloud.dagbok.backend.entity.Role;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class JwtUtilTest {
+  private static final String SECRET = "ifgPtcMrQGIDxmDvzQuD1aUtVy7x92nsSQ42ZEJPbqQ=";
+
+  private final StepClock clock = new StepClock(Instant.parse("2026-03-04T10:00:00Z"));
+  private final JwtUtil.UntilExpiry expiry = new JwtUtil.UntilExpiry(clock);
+  private final Instant now = clock.instant();
+
+  @Test
+  void cachedTokensExpireAtTheirExpClaimOnTheClock() {
+    // The ticker's reading is irrelevant, only the time left until exp on the clock counts
+    assertThat(expiry.expireAfterCreate("key", claims(now.plusSeconds(90)), 42))
+        .isEqualTo(TimeUnit.SECONDS.toNanos(90));
+    assertThat(expiry.expireAfterCreate("key", claims(now.minusSeconds(1)), 42)).isZero();
+  }
+
+  @Test
+  void farFutureExpiryDoesNotOverflow() {
+    Instant farFuture = now.plus(400 * 365, ChronoUnit.DAYS);
+
+    assertThat(expiry.expireAfterCreate("key", claims(farFuture), 42)).isPositive();
+    assertThat(expiry.expireAfterCreate("key", claims(Instant.MAX), 42)).isEqualTo(Long.MAX_VALUE);
+  }
+
+  @Test
+  void cachedTokenIsRejectedOnceTheClockPassesItsExp() {
+    JwtUtil jwtUtil = new JwtUtil(new SimpleMeterRegistry(), clock);
+    ReflectionTestUtils.setField(jwtUtil, "jwtSecret", SECRET);
+    ReflectionTestUtils.setField(jwtUtil, "tokenCacheMaxSize", 100L);
+    jwtUtil.init();
+    String token = jwtUtil.generateToken(UUID.randomUUID(), "user", Role.USER, 60_000L);
+    assertThat(jwtUtil.verify(token).username()).isEqualTo("user");
+
+    // Still cached, since the cache's own ticker has barely moved
+    clock.step(Duration.ofSeconds(61));
+
+    assertThatThrownBy(() -> jwtUtil.verify(token)).isInstanceOf(ExpiredJwtException.class);
+    assertThat(jwtUtil.validateJwtToken(token)).isFalse();
+  }
+
+  private static JwtUtil.TokenClaims claims(Instant expiresAt) {
+    return new JwtUtil.TokenClaims("id", "user", UUID.randomUUID(), Role.USER, expiresAt);
+  }
+
+  /** A wall clock that only moves when told to, like one stepped by NTP. */
+  private static final class StepClock extends Clock {
+    private Instant now;
+
+    private StepClock(Instant now) {
+      this.now = now;
+    }
+
+    void step(Duration duration) {
+      now = now.plus(duration);
+    }
+
+    @Override
+    public Instant instant() {
+      return now;
+    }
+
+    @Override
+    public ZoneId getZone() {
+      return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+      return this;
+    }
+  }
+}
@@ -0,0 +1,58 @@
+package cloud.dagbok.backend.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import cloud.dagbok.backend.exceptionHandler.IncompleteStreamException;
+import cloud.dagbok.backend.utils.PromptUtil.ChatResult;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class PromptUtilTest {
+  private static final String MODEL = "xiaomi/mimo-v2-flash:free";
+
+  private final List<String> deltas = new ArrayList<>();
+
+  @Test
+  void streamEndingInDoneIsComplete() throws Exception {
+    ChatResult result =
+        parse(
+            ": OPENROUTER PROCESSING",
+            "data: {\"choices\": [{\"delta\": {\"content\": \"Hello \"}}]}",
+            "data: {\"choices\": [{\"delta\": {\"content\": \"world\"}}]}",
+            "data: {\"choices\": [], \"usage\": {\"prompt_tokens\": 3, \"completion_tokens\": 2,"
+                + " \"total_tokens\": 5}}",
+            "data: [DONE]");
+
+    assertThat(result.text()).isEqualTo("Hello world");
+    assertThat(result.totalTokens()).isEqualTo(5);
+    assertThat(deltas).containsExactly("Hello ", "world");
+  }
+
+  @Test
+  void finishReasonCompletesAStreamWithoutDone() throws Exception {
+    ChatResult result =
+        parse(
+            "data: {\"choices\": [{\"delta\": {\"content\": \"Done\"}}]}",
+            "data: {\"choices\": [{\"delta\": {}, \"finish_reason\": \"stop\"}]}");
+
+    assertThat(result.text()).isEqualTo("Done");
+  }
+
+  @Test
+  void streamCutOffMidAnswerIsAnError() {
+    assertThatThrownBy(
+            () ->
+                parse(
+                    "data: {\"choices\": [{\"delta\": {\"content\": \"Half of\"}}]}",
+                    "data: {\"choices\": [{\"delta\": {\"content\": \" the\"}, \"finish_reason\":"
+                        + " null}]}"))
+        .isInstanceOf(IncompleteStreamException.class);
+    assertThat(deltas).containsExactly("Half of", " the");
+  }
+
+  private ChatResult parse(String... lines) throws Exception {
+    return PromptUtil.parseStream(List.of(lines).iterator(), MODEL, deltas::add);
+  }
+}
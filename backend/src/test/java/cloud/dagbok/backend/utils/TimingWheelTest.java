@@ -0,0 +1,88 @@
+package cloud.dagbok.backend.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Drives the wheel from a test clock, one tick at a time as the scheduler would, and records when
+ * each item comes out. Level 0 covers a minute and level 1 an hour, so deadlines past those have to
+ * cascade down before they expire.
+ */
+class TimingWheelTest {
+  private static final long TICK = 1000;
+  private static final int WHEEL_SIZE = 60;
+
+  private final long start = 1_700_000_000_000L;
+  private final TimingWheel<String> wheel = new TimingWheel<>(TICK, WHEEL_SIZE, 3, start);
+  private final Map<String, Long> expiredAt = new LinkedHashMap<>();
+  private long now = start;
+
+  @Test
+  void expiresItemsWithinLevelZeroAtMostOneTickLate() {
+    wheel.schedule("a", start + 5_000);
+    wheel.schedule("b", start + 5_500);
+    wheel.schedule("c", start + 30_000);
+
+    runFor(60_000);
+
+    assertExpiredOnTime("a", start + 5_000);
+    assertExpiredOnTime("b", start + 5_500);
+    assertExpiredOnTime("c", start + 30_000);
+    assertThat(wheel.size()).isZero();
+  }
+
+  @Test
+  void cascadesDeadlinesFromLevelOne() {
+    wheel.schedule("minutes", start + 150_000);
+    wheel.schedule("soon", start + 2_000);
+
+    runFor(200_000);
+
+    assertExpiredOnTime("soon", start + 2_000);
+    assertExpiredOnTime("minutes", start + 150_000);
+    assertThat(expiredAt.keySet()).containsExactly("soon", "minutes");
+  }
+
+  @Test
+  void cascadesDeadlinesFromLevelTwo() {
+    wheel.schedule("hours", start + 7_300_000);
+
+    runFor(7_400_000);
+
+    assertExpiredOnTime("hours", start + 7_300_000);
+    assertThat(wheel.size()).isZero();
+  }
+
+  @Test
+  void reusesASlotOneRevolutionLater() {
+    wheel.schedule("first", start + 5_000);
+    runFor(10_000);
+    assertExpiredOnTime("first", start + 5_000);
+
+    // Same level 0 slot as "first", one full turn of the wheel later
+    long nextTurn = start + 5_000 + TICK * WHEEL_SIZE;
+    wheel.schedule("second", nextTurn);
+    runFor(60_000);
+
+    assertExpiredOnTime("second", nextTurn);
+    assertThat(wheel.size()).isZero();
+  }
+
+  private void runFor(long millis) {
+    long end = now + millis;
+    while (now < end) {
+      now += TICK;
+      for (String item : wheel.advance(now)) {
+        assertThat(expiredAt.put(item, now)).as("%s expired twice", item).isNull();
+      }
+    }
+  }
+
+  private void assertExpiredOnTime(String item, long deadline) {
+    assertThat(expiredAt).containsKey(item);
+    assertThat(expiredAt.get(item)).isBetween(deadline, deadline + TICK);
+  }
+}
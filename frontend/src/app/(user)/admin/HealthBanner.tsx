@@ -16,7 +16,7 @@ const HealthBanner = () => {
     const checkHealth = async () => {
       try {
         const res = await fetch(
-          `${process.env.NEXT_PUBLIC_API_URL}/actuator/health`,
+          `${process.env.NEXT_PUBLIC_API_URL}/health`,
           {
             method: "GET",
             cache: "no-store",
@@ -15,6 +15,34 @@ interface NotesData {
   notes: Note[];
 }
 
+interface NotesPage extends NotesData {
+  nextCursor: string | null;
+}
+
+// The notes endpoints answer a page at a time, so follow nextCursor to the
+// last page. Returns the first failed response instead if a page fails.
+const fetchAllNotes = async (url: string): Promise<NotesData | Response> => {
+  const notes: Note[] = [];
+  let cursor: string | null = null;
+  do {
+    const res = await fetch(
+      cursor ? `${url}&cursor=${encodeURIComponent(cursor)}` : url,
+      {
+        method: "GET",
+        headers: { "Content-Type": "application/json" },
+        credentials: "include",
+      },
+    );
+    if (!res.ok) {
+      return res;
+    }
+    const page: NotesPage = await res.json();
+    notes.push(...page.notes);
+    cursor = page.nextCursor;
+  } while (cursor);
+  return { notes };
+};
+
 interface CalendarHandlerProps {
   user: User;
 }
@@ -126,16 +154,11 @@ const CalendarHandler = ({ user }: CalendarHandlerProps) => {
     const date = new Date(year, month, day);
     const formatted = date.toLocaleDateString("sv-SE");
     try {
-      const res = await fetch(
-        `${process.env.NEXT_PUBLIC_API_URL}/api/notes/user?date=${formatted}`,
-        {
-          method: "GET",
-          headers: { "Content-Type": "application/json" },
-          credentials: "include",
-        },
+      const res = await fetchAllNotes(
+        `${process.env.NEXT_PUBLIC_API_URL}/api/notes/user?date=${formatted}&limit=100`,
       );
 
-      if (!res.ok) {
+      if (res instanceof Response) {
         const error = await res.json();
 
         if (error.error === "Too many requests") {
@@ -145,9 +168,8 @@ const CalendarHandler = ({ user }: CalendarHandlerProps) => {
         }
       }
 
-      if (res.ok) {
-        const data = await res.json();
-        setNotesData(data);
+      if (!(res instanceof Response)) {
+        setNotesData(res);
       } else {
         console.error(`Failed to fetch notes: HTTP ${res.status}`);
         setNotesData(null);
@@ -164,18 +186,12 @@ const CalendarHandler = ({ user }: CalendarHandlerProps) => {
     setNotesData(null);
 
     try {
-      const res = await fetch(
-        `${process.env.NEXT_PUBLIC_API_URL}/api/notes/user/search?q=${encodeURIComponent(query)}`,
-        {
-          method: "GET",
-          headers: { "Content-Type": "application/json" },
-          credentials: "include",
-        },
+      const res = await fetchAllNotes(
+        `${process.env.NEXT_PUBLIC_API_URL}/api/notes/user/search?q=${encodeURIComponent(query)}&limit=100`,
       );
 
-      if (res.ok) {
-        const data = await res.json();
-        setNotesData(data);
+      if (!(res instanceof Response)) {
+        setNotesData(res);
         setIsModalOpen(true);
       } else {
         const errorMessage =